@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.woalk.apps.lib.colorpicker;
+
+import android.graphics.Bitmap;
+
+/**
+ * Creates palettes of {@link Bitmap}s with a {@link ColorQuantizer}.
+ */
+public final class BitmapColorQuantizer {
+
+    /**
+     * The default maximum number of pixels which are quantized.  Larger bitmaps are scaled down
+     * first, which keeps their colors but saves memory.
+     */
+    public static final int DEFAULT_MAX_PIXELS = 512 * 512;
+
+    private BitmapColorQuantizer() {
+    }
+
+    /**
+     * Create a palette of the bitmap, scaled down to at most {@link #DEFAULT_MAX_PIXELS} pixels.
+     * Should not be called on the main thread.
+     * @param bitmap The bitmap, e.g. a product image.
+     * @param quantizer The quantizer to create the palette with.
+     * @return The palette, see {@link ColorQuantizer#quantize(int[])}.
+     * @throws InterruptedException When the calling thread is interrupted.
+     */
+    public static int[] quantize(Bitmap bitmap, ColorQuantizer quantizer)
+            throws InterruptedException {
+        return quantize(bitmap, quantizer, DEFAULT_MAX_PIXELS);
+    }
+
+    /**
+     * Create a palette of the bitmap.  Should not be called on the main thread.
+     * @param bitmap The bitmap, e.g. a product image.
+     * @param quantizer The quantizer to create the palette with.
+     * @param maxPixels Larger bitmaps are scaled down to this number of pixels first, or
+     *                  {@code 0} to quantize all pixels of the bitmap.
+     * @return The palette, see {@link ColorQuantizer#quantize(int[])}.
+     * @throws InterruptedException When the calling thread is interrupted.
+     */
+    public static int[] quantize(Bitmap bitmap, ColorQuantizer quantizer, int maxPixels)
+            throws InterruptedException {
+        if (maxPixels < 0) {
+            throw new IllegalArgumentException("maxPixels must not be negative.");
+        }
+        Bitmap scaled = bitmap;
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+        if (maxPixels > 0 && (long) width * height > maxPixels) {
+            double scale = Math.sqrt((double) maxPixels / ((long) width * height));
+            width = Math.max(1, (int) (width * scale));
+            height = Math.max(1, (int) (height * scale));
+            scaled = Bitmap.createScaledBitmap(bitmap, width, height, true);
+        }
+
+        int[] pixels = new int[width * height];
+        scaled.getPixels(pixels, 0, width, 0, 0, width, height);
+        if (scaled != bitmap) {
+            scaled.recycle();
+        }
+        return quantizer.quantize(pixels);
+    }
+}
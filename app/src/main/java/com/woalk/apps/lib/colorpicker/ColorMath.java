@@ -0,0 +1,664 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.woalk.apps.lib.colorpicker;
+
+/**
+ * Color conversions used by the color picker, in plain Java so they can be used and tested
+ * without {@link android.graphics.Color}.  Colors are color ints {@code (0xAARRGGBB)}.
+ * <br/><br/>
+ * <b>Accuracy against {@code android.graphics.Color}:</b>
+ * <ul>
+ * <li>{@link #colorToHsv} does the same integer and {@code float} operations as Skia's
+ * {@code SkRGBToHSV}, which backs {@code Color.colorToHSV}, and returns the same floats.</li>
+ * <li>{@link #hsvToColor} does the same operations as Skia's {@code SkHSVToColor}, which backs
+ * {@code Color.HSVToColor}.  Converting any color to HSV and back returns the same color.</li>
+ * <li>{@link #scaleValue} is exact in integer arithmetic and within 1 per channel of scaling the
+ * value of {@code Color.colorToHSV} and converting back with {@code Color.HSVToColor}.</li>
+ * <li>{@code android.graphics.Color} has no HSL conversion.  {@link #colorToHsl} uses the same hue
+ * as {@link #colorToHsv}, and converting any color to HSL and back with {@link #hslToColor}
+ * returns the same color.</li>
+ * </ul>
+ * The {@code float} conversions are kept to match {@code android.graphics.Color} bit for bit.
+ * <br/><br/>
+ * <b>Fixed point:</b> {@link #colorToHsvFixed} and {@link #colorToHslFixed} and their inverses use
+ * integer arithmetic only, and pack the components into one int: the hue in bits 31-17 in
+ * 1/32768 turns, the saturation in bits 16-9 in 1/255, and the value or lightness in bits 8-0 in
+ * 1/510.  Converting any color to fixed-point HSV or HSL and back returns the same color.  The
+ * hue is within 1/65536 turns of the {@code float} hue.
+ */
+public final class ColorMath {
+
+    /** The linear value of every 8-bit sRGB channel value. */
+    private static final double[] SRGB_TO_LINEAR = new double[256];
+
+    /** The number of hue steps in a turn of fixed-point HSV and HSL. */
+    private static final int HUE_STEPS = 1 << 15;
+    private static final int HUE_SHIFT = 17;
+    private static final int SATURATION_SHIFT = 9;
+    /** The maximum of the value and lightness of fixed-point HSV and HSL, {@code 2 * 255}. */
+    private static final int MAX_LIGHTNESS = 510;
+
+    static {
+        for (int i = 0; i < SRGB_TO_LINEAR.length; i++) {
+            double encoded = i / 255.0;
+            SRGB_TO_LINEAR[i] = encoded <= 0.04045 ? encoded / 12.92
+                    : Math.pow((encoded + 0.055) / 1.055, 2.4);
+        }
+    }
+
+    private ColorMath() {
+    }
+
+    public static int alpha(int color) {
+        return color >>> 24;
+    }
+
+    public static int red(int color) {
+        return (color >> 16) & 0xff;
+    }
+
+    public static int green(int color) {
+        return (color >> 8) & 0xff;
+    }
+
+    public static int blue(int color) {
+        return color & 0xff;
+    }
+
+    /**
+     * Returns the color int of the given components, each in the range {@code [0, 255]}.
+     */
+    public static int argb(int alpha, int red, int green, int blue) {
+        return (alpha << 24) | (red << 16) | (green << 8) | blue;
+    }
+
+    /**
+     * Returns the opaque color int of the given components, each in the range {@code [0, 255]}.
+     */
+    public static int rgb(int red, int green, int blue) {
+        return 0xff000000 | (red << 16) | (green << 8) | blue;
+    }
+
+    /**
+     * Converts a color to its HSV components, ignoring alpha.
+     * @param hsv 3 element array which receives hue {@code [0, 360)}, saturation {@code [0, 1]}
+     *            and value {@code [0, 1]}.
+     */
+    public static void colorToHsv(int color, float[] hsv) {
+        colorToHsv(color, hsv, 0);
+    }
+
+    /**
+     * Converts a color to its HSV components, ignoring alpha.  Only the hue differs from
+     * {@link #colorToHsl}.
+     */
+    private static void colorToHsv(int color, float[] hsv, int offset) {
+        int r = red(color);
+        int g = green(color);
+        int b = blue(color);
+        int max = Math.max(r, Math.max(g, b));
+        int min = Math.min(r, Math.min(g, b));
+        int delta = max - min;
+
+        hsv[offset + 2] = max / 255f;
+        if (delta == 0) {
+            // A shade of gray.
+            hsv[offset] = 0;
+            hsv[offset + 1] = 0;
+            return;
+        }
+        hsv[offset] = hue(r, g, b, max, delta);
+        hsv[offset + 1] = (float) delta / max;
+    }
+
+    /**
+     * Converts HSV components to an opaque color.
+     * @param hsv 3 element array holding hue {@code [0, 360)}, saturation {@code [0, 1]} and value
+     *            {@code [0, 1]}.  Values out of range are clamped, a hue out of range is {@code 0}.
+     */
+    public static int hsvToColor(float[] hsv) {
+        return hsvToColor(0xff, hsv, 0);
+    }
+
+    /**
+     * Converts HSV components to a color with the given alpha {@code [0, 255]}.
+     */
+    public static int hsvToColor(int alpha, float[] hsv) {
+        return hsvToColor(alpha, hsv, 0);
+    }
+
+    private static int hsvToColor(int alpha, float[] hsv, int offset) {
+        float s = clamp(hsv[offset + 1]);
+        float v = clamp(hsv[offset + 2]);
+        int valueByte = round(v * 255);
+        if (s <= 1f / 4096) {
+            // A shade of gray.
+            return argb(alpha, valueByte, valueByte, valueByte);
+        }
+
+        float hue = hsv[offset];
+        if (hue < 0 || hue >= 360) {
+            hue = 0;
+        }
+        hue /= 60;
+        float sector = (float) Math.floor(hue);
+        float fraction = hue - sector;
+        int p = round((1 - s) * v * 255);
+        int q = round((1 - (s * fraction)) * v * 255);
+        int t = round((1 - (s * (1 - fraction))) * v * 255);
+
+        switch ((int) sector) {
+            case 0:
+                return argb(alpha, valueByte, t, p);
+            case 1:
+                return argb(alpha, q, valueByte, p);
+            case 2:
+                return argb(alpha, p, valueByte, t);
+            case 3:
+                return argb(alpha, p, q, valueByte);
+            case 4:
+                return argb(alpha, t, p, valueByte);
+            default:
+                return argb(alpha, valueByte, p, q);
+        }
+    }
+
+    /**
+     * Converts a color to its HSL components, ignoring alpha.
+     * @param hsl 3 element array which receives hue {@code [0, 360)}, saturation {@code [0, 1]}
+     *            and lightness {@code [0, 1]}.
+     */
+    public static void colorToHsl(int color, float[] hsl) {
+        colorToHsl(color, hsl, 0);
+    }
+
+    private static void colorToHsl(int color, float[] hsl, int offset) {
+        int r = red(color);
+        int g = green(color);
+        int b = blue(color);
+        int max = Math.max(r, Math.max(g, b));
+        int min = Math.min(r, Math.min(g, b));
+        int delta = max - min;
+
+        hsl[offset + 2] = (max + min) / 510f;
+        if (delta == 0) {
+            // A shade of gray.
+            hsl[offset] = 0;
+            hsl[offset + 1] = 0;
+            return;
+        }
+        hsl[offset] = hue(r, g, b, max, delta);
+        hsl[offset + 1] = (float) delta / (255 - Math.abs(max + min - 255));
+    }
+
+    /**
+     * Converts HSL components to an opaque color.
+     * @param hsl 3 element array holding hue {@code [0, 360)}, saturation {@code [0, 1]} and
+     *            lightness {@code [0, 1]}.  Values out of range are clamped, a hue out of range is
+     *            {@code 0}.
+     */
+    public static int hslToColor(float[] hsl) {
+        return hslToColor(0xff, hsl, 0);
+    }
+
+    /**
+     * Converts HSL components to a color with the given alpha {@code [0, 255]}.
+     */
+    public static int hslToColor(int alpha, float[] hsl) {
+        return hslToColor(alpha, hsl, 0);
+    }
+
+    private static int hslToColor(int alpha, float[] hsl, int offset) {
+        float s = clamp(hsl[offset + 1]);
+        float l = clamp(hsl[offset + 2]);
+        float hue = hsl[offset];
+        if (hue < 0 || hue >= 360) {
+            hue = 0;
+        }
+        hue /= 60;
+
+        float chroma = (1 - Math.abs(2 * l - 1)) * s;
+        float x = chroma * (1 - Math.abs(hue % 2 - 1));
+        float m = l - chroma / 2;
+        int c = round((chroma + m) * 255);
+        int xm = round((x + m) * 255);
+        int m255 = round(m * 255);
+
+        switch ((int) hue) {
+            case 0:
+                return argb(alpha, c, xm, m255);
+            case 1:
+                return argb(alpha, xm, c, m255);
+            case 2:
+                return argb(alpha, m255, c, xm);
+            case 3:
+                return argb(alpha, m255, xm, c);
+            case 4:
+                return argb(alpha, xm, m255, c);
+            default:
+                return argb(alpha, c, m255, xm);
+        }
+    }
+
+    /**
+     * Converts colors to HSV components, see {@link #colorToHsv(int, float[])}.
+     * @param hsv Receives 3 components per color, at least {@code 3 * colors.length} long.
+     */
+    public static void colorsToHsv(int[] colors, float[] hsv) {
+        for (int i = 0; i < colors.length; i++) {
+            colorToHsv(colors[i], hsv, 3 * i);
+        }
+    }
+
+    /**
+     * Converts HSV components to opaque colors, see {@link #hsvToColor(float[])}.
+     * @param hsv 3 components per color, at least {@code 3 * colors.length} long.
+     */
+    public static void hsvToColors(float[] hsv, int[] colors) {
+        for (int i = 0; i < colors.length; i++) {
+            colors[i] = hsvToColor(0xff, hsv, 3 * i);
+        }
+    }
+
+    /**
+     * Converts colors to HSL components, see {@link #colorToHsl(int, float[])}.
+     * @param hsl Receives 3 components per color, at least {@code 3 * colors.length} long.
+     */
+    public static void colorsToHsl(int[] colors, float[] hsl) {
+        for (int i = 0; i < colors.length; i++) {
+            colorToHsl(colors[i], hsl, 3 * i);
+        }
+    }
+
+    /**
+     * Converts HSL components to opaque colors, see {@link #hslToColor(float[])}.
+     * @param hsl 3 components per color, at least {@code 3 * colors.length} long.
+     */
+    public static void hslToColors(float[] hsl, int[] colors) {
+        for (int i = 0; i < colors.length; i++) {
+            colors[i] = hslToColor(0xff, hsl, 3 * i);
+        }
+    }
+
+    /**
+     * Converts a color to fixed-point HSV in integer arithmetic, ignoring alpha.  See the class
+     * documentation for the layout.
+     */
+    public static int colorToHsvFixed(int color) {
+        int r = red(color);
+        int g = green(color);
+        int b = blue(color);
+        int max = Math.max(r, Math.max(g, b));
+        int delta = max - Math.min(r, Math.min(g, b));
+        if (delta == 0) {
+            // A shade of gray, hue and saturation are zero.
+            return 2 * max;
+        }
+        int saturation = (255 * delta + max / 2) / max;
+        return packFixed(fixedHue(r, g, b, max, delta), saturation, 2 * max);
+    }
+
+    /**
+     * Converts fixed-point HSV to an opaque color, see {@link #colorToHsvFixed(int)}.  A value
+     * greater than {@code 510} is clamped.
+     */
+    public static int hsvFixedToColor(int hsv) {
+        return hsvFixedToColor(0xff, hsv);
+    }
+
+    /**
+     * Converts fixed-point HSV to a color with the given alpha {@code [0, 255]}.
+     */
+    public static int hsvFixedToColor(int alpha, int hsv) {
+        int max = (Math.min(hsv & 0x1ff, MAX_LIGHTNESS) + 1) >> 1;
+        int delta = (((hsv >> SATURATION_SHIFT) & 0xff) * max + 127) / 255;
+        return fixedHueToColor(alpha, hsv >>> HUE_SHIFT, max, delta);
+    }
+
+    /**
+     * Converts a color to fixed-point HSL in integer arithmetic, ignoring alpha.  See the class
+     * documentation for the layout.
+     */
+    public static int colorToHslFixed(int color) {
+        int r = red(color);
+        int g = green(color);
+        int b = blue(color);
+        int max = Math.max(r, Math.max(g, b));
+        int min = Math.min(r, Math.min(g, b));
+        int delta = max - min;
+        int lightness = max + min;
+        if (delta == 0) {
+            // A shade of gray, hue and saturation are zero.
+            return lightness;
+        }
+        int range = 255 - Math.abs(lightness - 255);
+        int saturation = (255 * delta + range / 2) / range;
+        return packFixed(fixedHue(r, g, b, max, delta), saturation, lightness);
+    }
+
+    /**
+     * Converts fixed-point HSL to an opaque color, see {@link #colorToHslFixed(int)}.  A
+     * lightness greater than {@code 510} is clamped.
+     */
+    public static int hslFixedToColor(int hsl) {
+        return hslFixedToColor(0xff, hsl);
+    }
+
+    /**
+     * Converts fixed-point HSL to a color with the given alpha {@code [0, 255]}.
+     */
+    public static int hslFixedToColor(int alpha, int hsl) {
+        int lightness = Math.min(hsl & 0x1ff, MAX_LIGHTNESS);
+        int range = 255 - Math.abs(lightness - 255);
+        int delta = (((hsl >> SATURATION_SHIFT) & 0xff) * range + 127) / 255;
+        return fixedHueToColor(alpha, hsl >>> HUE_SHIFT, (lightness + delta + 1) >> 1, delta);
+    }
+
+    /**
+     * Converts colors to fixed-point HSV, see {@link #colorToHsvFixed(int)}.
+     * @param hsv Receives the components of every color, at least as long as {@code colors}.
+     */
+    public static void colorsToHsvFixed(int[] colors, int[] hsv) {
+        for (int i = 0; i < colors.length; i++) {
+            hsv[i] = colorToHsvFixed(colors[i]);
+        }
+    }
+
+    /**
+     * Converts fixed-point HSV to opaque colors, see {@link #hsvFixedToColor(int)}.
+     * @param hsv The components of every color, at least as long as {@code colors}.
+     */
+    public static void hsvFixedToColors(int[] hsv, int[] colors) {
+        for (int i = 0; i < colors.length; i++) {
+            colors[i] = hsvFixedToColor(0xff, hsv[i]);
+        }
+    }
+
+    /**
+     * Converts colors to fixed-point HSL, see {@link #colorToHslFixed(int)}.
+     * @param hsl Receives the components of every color, at least as long as {@code colors}.
+     */
+    public static void colorsToHslFixed(int[] colors, int[] hsl) {
+        for (int i = 0; i < colors.length; i++) {
+            hsl[i] = colorToHslFixed(colors[i]);
+        }
+    }
+
+    /**
+     * Converts fixed-point HSL to opaque colors, see {@link #hslFixedToColor(int)}.
+     * @param hsl The components of every color, at least as long as {@code colors}.
+     */
+    public static void hslFixedToColors(int[] hsl, int[] colors) {
+        for (int i = 0; i < colors.length; i++) {
+            colors[i] = hslFixedToColor(0xff, hsl[i]);
+        }
+    }
+
+    private static int packFixed(int hue, int saturation, int lightness) {
+        return (hue << HUE_SHIFT) | (saturation << SATURATION_SHIFT) | lightness;
+    }
+
+    /**
+     * The hue in {@link #HUE_STEPS} per turn, rounded: {@code [0, HUE_STEPS)}.
+     */
+    private static int fixedHue(int r, int g, int b, int max, int delta) {
+        return (hueSixths(r, g, b, max, delta) * HUE_STEPS + 3 * delta) / (6 * delta);
+    }
+
+    /**
+     * Returns the color of a fixed-point hue with the given maximum channel and difference
+     * between the maximum and minimum channel.
+     */
+    private static int fixedHueToColor(int alpha, int hue, int max, int delta) {
+        int min = max - delta;
+        int sixths = hue * 6;
+        // The distance of the middle channel from the minimum or maximum channel.
+        int x = ((sixths & (HUE_STEPS - 1)) * delta + HUE_STEPS / 2) / HUE_STEPS;
+        switch (sixths / HUE_STEPS) {
+            case 0:
+                return argb(alpha, max, min + x, min);
+            case 1:
+                return argb(alpha, max - x, max, min);
+            case 2:
+                return argb(alpha, min, max, min + x);
+            case 3:
+                return argb(alpha, min, max - x, max);
+            case 4:
+                return argb(alpha, min + x, min, max);
+            default:
+                return argb(alpha, max, min, max - x);
+        }
+    }
+
+    /**
+     * Converts a color to its OKLab components, ignoring alpha.  Euclidean distances in OKLab
+     * match perceived color differences much better than distances in RGB or HSV.
+     * @param lab 3 element array which receives lightness {@code [0, 1]} and the green-red and
+     *            blue-yellow axes, both about {@code [-0.4, 0.4]}.
+     */
+    public static void colorToOklab(int color, float[] lab) {
+        colorToOklab(color, lab, 0);
+    }
+
+    private static void colorToOklab(int color, float[] lab, int offset) {
+        double r = SRGB_TO_LINEAR[red(color)];
+        double g = SRGB_TO_LINEAR[green(color)];
+        double b = SRGB_TO_LINEAR[blue(color)];
+        double l = Math.cbrt(0.4122214708 * r + 0.5363325363 * g + 0.0514459929 * b);
+        double m = Math.cbrt(0.2119034982 * r + 0.6806995451 * g + 0.1073969566 * b);
+        double s = Math.cbrt(0.0883024619 * r + 0.2817188376 * g + 0.6299787005 * b);
+        lab[offset] = (float) (0.2104542553 * l + 0.7936177850 * m - 0.0040720468 * s);
+        lab[offset + 1] = (float) (1.9779984951 * l - 2.4285922050 * m + 0.4505937099 * s);
+        lab[offset + 2] = (float) (0.0259040371 * l + 0.7827717662 * m - 0.8086757660 * s);
+    }
+
+    /**
+     * Converts colors to OKLab components, see {@link #colorToOklab(int, float[])}.
+     * @param lab Receives 3 components per color, at least {@code 3 * colors.length} long.
+     */
+    public static void colorsToOklab(int[] colors, float[] lab) {
+        for (int i = 0; i < colors.length; i++) {
+            colorToOklab(colors[i], lab, 3 * i);
+        }
+    }
+
+    /**
+     * Converts OKLab components to an opaque color.  Colors outside of sRGB keep their lightness
+     * and hue and get the highest chroma which is inside of sRGB.
+     * @param lab 3 element array holding lightness {@code [0, 1]} and the green-red and
+     *            blue-yellow axes.
+     */
+    public static int oklabToColor(float[] lab) {
+        return oklabToColor(0xff, lab[0], lab[1], lab[2]);
+    }
+
+    /**
+     * Converts OKLab components to a color with the given alpha {@code [0, 255]}, see
+     * {@link #oklabToColor(float[])}.
+     */
+    public static int oklabToColor(int alpha, float[] lab) {
+        return oklabToColor(alpha, lab[0], lab[1], lab[2]);
+    }
+
+    static int oklabToColor(int alpha, double l, double a, double b) {
+        if (!isInSrgbGamut(l, a, b)) {
+            // Binary search for the highest chroma in gamut.
+            double low = 0;
+            double high = 1;
+            for (int i = 0; i < 16; i++) {
+                double middle = (low + high) / 2;
+                if (isInSrgbGamut(l, a * middle, b * middle)) {
+                    low = middle;
+                } else {
+                    high = middle;
+                }
+            }
+            a *= low;
+            b *= low;
+        }
+
+        double lc = cube(l + 0.3963377774 * a + 0.2158037573 * b);
+        double mc = cube(l - 0.1055613458 * a - 0.0638541728 * b);
+        double sc = cube(l - 0.0894841775 * a - 1.2914855480 * b);
+        return argb(alpha, encodeSrgb(4.0767416621 * lc - 3.3077115913 * mc + 0.2309699292 * sc),
+                encodeSrgb(-1.2684380046 * lc + 2.6097574011 * mc - 0.3413193965 * sc),
+                encodeSrgb(-0.0041960863 * lc - 0.7034186147 * mc + 1.7076147010 * sc));
+    }
+
+    private static boolean isInSrgbGamut(double l, double a, double b) {
+        double lc = cube(l + 0.3963377774 * a + 0.2158037573 * b);
+        double mc = cube(l - 0.1055613458 * a - 0.0638541728 * b);
+        double sc = cube(l - 0.0894841775 * a - 1.2914855480 * b);
+        return isInUnitRange(4.0767416621 * lc - 3.3077115913 * mc + 0.2309699292 * sc)
+                && isInUnitRange(-1.2684380046 * lc + 2.6097574011 * mc - 0.3413193965 * sc)
+                && isInUnitRange(-0.0041960863 * lc - 0.7034186147 * mc + 1.7076147010 * sc);
+    }
+
+    private static boolean isInUnitRange(double value) {
+        // Tolerates the rounding errors of the conversion matrices.
+        return value >= -1e-4 && value <= 1 + 1e-4;
+    }
+
+    private static double cube(double value) {
+        return value * value * value;
+    }
+
+    /**
+     * Converts CIE L*a*b* components relative to the D50 white point, as used by ICC profiles and
+     * Adobe swatches, to an opaque sRGB color.  Colors outside of sRGB are clipped.
+     * @param l Lightness {@code [0, 100]}.
+     * @param a Green-red axis, usually {@code [-128, 127]}.
+     * @param b Blue-yellow axis, usually {@code [-128, 127]}.
+     */
+    public static int labToColor(float l, float a, float b) {
+        double fy = (l + 16) / 116.0;
+        double fx = fy + a / 500.0;
+        double fz = fy - b / 200.0;
+        double x = 0.9642 * labToXyz(fx);
+        double y = l > 8 ? fy * fy * fy : l * 27 / 24389.0;
+        double z = 0.8249 * labToXyz(fz);
+
+        // XYZ (D50) to linear sRGB (D65), with Bradford chromatic adaptation.
+        return rgb(encodeSrgb(3.1338561 * x - 1.6168667 * y - 0.4906146 * z),
+                encodeSrgb(-0.9787684 * x + 1.9161415 * y + 0.0334540 * z),
+                encodeSrgb(0.0719453 * x - 0.2289914 * y + 1.4052427 * z));
+    }
+
+    private static double labToXyz(double f) {
+        double cube = f * f * f;
+        return cube > 216 / 24389.0 ? cube : (116 * f - 16) * 27 / 24389.0;
+    }
+
+    /**
+     * Applies the sRGB transfer function to a linear channel and returns its 8-bit value.
+     */
+    private static int encodeSrgb(double linear) {
+        if (linear <= 0) {
+            return 0;
+        } else if (linear >= 1) {
+            return 255;
+        }
+        double encoded = linear <= 0.0031308 ? 12.92 * linear
+                : 1.055 * Math.pow(linear, 1 / 2.4) - 0.055;
+        return (int) (encoded * 255 + 0.5);
+    }
+
+    /**
+     * Multiplies the HSV value of a color by {@code numerator / denominator}, which must not be
+     * greater than 1.  Scaling the value keeps hue and saturation, which is the same as scaling
+     * each channel, so this is done in integer arithmetic, rounding half up.
+     * @return The opaque scaled color, like {@code Color.HSVToColor} returns it.
+     */
+    public static int scaleValue(int color, int numerator, int denominator) {
+        return rgb(scaleChannel(red(color), numerator, denominator),
+                scaleChannel(green(color), numerator, denominator),
+                scaleChannel(blue(color), numerator, denominator));
+    }
+
+    private static int scaleChannel(int channel, int numerator, int denominator) {
+        return (channel * numerator + denominator / 2) / denominator;
+    }
+
+    /**
+     * Returns a key of the hue, saturation, and value of a color.  If the key of one color is
+     * greater than the key of another color, so is its hue, or with equal hues its saturation, or
+     * with equal saturations its value, as computed by {@link #colorToHsv}.  Equal keys mean equal
+     * HSV values.
+     * <br/><br/>
+     * The key holds the exact fractions the HSV floats are computed from in fixed point.  Different
+     * fractions of 8-bit channels are at least {@code 1/(255 * 254)} apart, so {@code 17} fraction
+     * bits keep them apart, and the order of the floats is the same.  Keys are less than
+     * {@code 2^46}.
+     */
+    public static long hsvKey(int color) {
+        int r = red(color);
+        int g = green(color);
+        int b = blue(color);
+        int max = Math.max(r, Math.max(g, b));
+        int min = Math.min(r, Math.min(g, b));
+        int delta = max - min;
+        if (delta == 0) {
+            // A shade of gray, hue and saturation are zero.
+            return max;
+        }
+
+        long hueKey = ((long) hueSixths(r, g, b, max, delta) << 17) / delta;
+        long saturationKey = ((long) delta << 17) / max;
+        return (hueKey << 26) | (saturationKey << 8) | max;
+    }
+
+    /**
+     * The hue in sixths of the color wheel, multiplied by {@code delta}: {@code [0, 6 * delta)}.
+     */
+    private static int hueSixths(int r, int g, int b, int max, int delta) {
+        if (r == max) {
+            int hue = g - b;
+            return hue < 0 ? hue + 6 * delta : hue;
+        } else if (g == max) {
+            return 2 * delta + b - r;
+        } else {
+            return 4 * delta + r - g;
+        }
+    }
+
+    /**
+     * The hue in degrees, in the same {@code float} operations as Skia.
+     */
+    private static float hue(int r, int g, int b, int max, int delta) {
+        float hue;
+        if (r == max) {
+            hue = (float) (g - b) / delta;
+        } else if (g == max) {
+            hue = 2 + (float) (b - r) / delta;
+        } else {
+            hue = 4 + (float) (r - g) / delta;
+        }
+        hue *= 60;
+        if (hue < 0) {
+            hue += 360;
+        }
+        return hue;
+    }
+
+    private static float clamp(float value) {
+        return value < 0 ? 0 : value > 1 ? 1 : value;
+    }
+
+    private static int round(float value) {
+        return (int) Math.floor(value + 0.5f);
+    }
+}
@@ -0,0 +1,303 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.woalk.apps.lib.colorpicker;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/**
+ * A palette in a compact binary file, which is memory-mapped and read without a parse step.
+ * <br/><br/>
+ * <b>Format, version 1 (all values big-endian):</b>
+ * <ul>
+ * <li>Header, 16 bytes: the magic {@code "CPAL"}, the version (2 bytes), flags (2 bytes), the
+ * number of colors {@code n} (4 bytes) and 4 reserved zero bytes.</li>
+ * <li>If {@link #FLAG_SORT_KEYS} is set: {@code n} sort keys of
+ * {@link HsvColorComparator#sortKey(int)}, 8 bytes each.</li>
+ * <li>{@code n} color ints {@code (0xAARRGGBB)}, 4 bytes each.</li>
+ * <li>If {@link #FLAG_NAMES} is set: {@code n + 1} offsets of the names, 4 bytes each, followed
+ * by the names in UTF-8.  Name {@code i} spans the bytes from offset {@code i} to offset
+ * {@code i + 1}, relative to the first name.</li>
+ * </ul>
+ * Open a file with {@link #open(File)}, write one with {@link #write}.
+ */
+public final class ColorPaletteFile {
+
+    public static final int VERSION = 1;
+
+    /** The file contains a name for every color. */
+    public static final int FLAG_NAMES = 1;
+    /** The file contains the {@link HsvColorComparator#sortKey(int)} of every color. */
+    public static final int FLAG_SORT_KEYS = 1 << 1;
+
+    private static final int MAGIC = 0x4350414c; // "CPAL"
+    private static final int HEADER_SIZE = 16;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final ByteBuffer mBuffer;
+    private final int mFlags;
+    private final int mCount;
+    private final IntBuffer mColors;
+    private final LongBuffer mSortKeys;
+    private final IntBuffer mNameOffsets;
+    private final int mNamesPosition;
+
+    private ColorPaletteFile(ByteBuffer buffer) throws IOException {
+        mBuffer = buffer;
+        if (buffer.remaining() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a color palette file.");
+        }
+        int version = buffer.getShort(4);
+        if (version < 1 || version > VERSION) {
+            throw new IOException("Unsupported color palette file version " + version + ".");
+        }
+        mFlags = buffer.getShort(6);
+        mCount = buffer.getInt(8);
+        if (mCount < 0) {
+            throw new IOException("Invalid number of colors " + mCount + ".");
+        }
+
+        long position = HEADER_SIZE;
+        if ((mFlags & FLAG_SORT_KEYS) != 0) {
+            mSortKeys = slice(position, 8L * mCount).asLongBuffer();
+            position += 8L * mCount;
+        } else {
+            mSortKeys = null;
+        }
+        mColors = slice(position, 4L * mCount).asIntBuffer();
+        position += 4L * mCount;
+        if ((mFlags & FLAG_NAMES) != 0) {
+            mNameOffsets = slice(position, 4L * (mCount + 1)).asIntBuffer();
+            mNamesPosition = (int) (position + 4L * (mCount + 1));
+            checkNameOffsets(buffer.limit() - mNamesPosition);
+        } else {
+            mNameOffsets = null;
+            mNamesPosition = 0;
+        }
+    }
+
+    /**
+     * Checks that the name offsets start at or after the first name, never decrease and end
+     * within the file, so {@link #getName(int)} can read every name.
+     * @param namesLength The number of bytes after the offsets.
+     * @throws IOException When an offset is out of order or out of range.
+     */
+    private void checkNameOffsets(int namesLength) throws IOException {
+        int previous = 0;
+        for (int i = 0; i <= mCount; i++) {
+            int offset = mNameOffsets.get(i);
+            if (offset < previous || offset > namesLength) {
+                throw new IOException("Invalid name offset " + offset + " at index " + i + ".");
+            }
+            previous = offset;
+        }
+    }
+
+    /**
+     * Returns a view of {@code length} bytes at {@code position} of the file.
+     * @throws IOException When the file is too short.
+     */
+    private ByteBuffer slice(long position, long length) throws IOException {
+        if (length < 0 || position + length > mBuffer.limit()) {
+            throw new IOException("Truncated color palette file.");
+        }
+        ByteBuffer buffer = mBuffer.duplicate();
+        buffer.position((int) position);
+        buffer.limit((int) (position + length));
+        return buffer.slice();
+    }
+
+    /**
+     * Memory-maps a palette file.  Colors, names and sort keys are read from the mapping when
+     * they are requested, only the name offsets are checked in advance.
+     * @param file The palette file to open.
+     * @return The opened palette.
+     * @throws IOException When the file cannot be read or is not a valid palette file.
+     */
+    public static ColorPaletteFile open(File file) throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            FileChannel channel = in.getChannel();
+            // The mapping stays valid after the channel is closed.
+            return new ColorPaletteFile(channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    channel.size()));
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Reads a palette from the contents of a palette file, e.g. a direct buffer filled from an
+     * asset.  The buffer is not copied and must not be modified afterwards.
+     * @param buffer The file contents, from its position to its limit.
+     * @return The palette.
+     * @throws IOException When the buffer does not hold a valid palette file.
+     */
+    public static ColorPaletteFile wrap(ByteBuffer buffer) throws IOException {
+        return new ColorPaletteFile(buffer.slice());
+    }
+
+    /**
+     * Get the number of colors in this palette.
+     */
+    public int getCount() {
+        return mCount;
+    }
+
+    /**
+     * Get the flags of this palette file, a combination of {@link #FLAG_NAMES} and
+     * {@link #FLAG_SORT_KEYS}.
+     */
+    public int getFlags() {
+        return mFlags;
+    }
+
+    /**
+     * Get the color at {@code index}.
+     */
+    public int getColor(int index) {
+        return mColors.get(index);
+    }
+
+    /**
+     * Get all colors of this palette, e.g. for {@link ColorPickerDialog#setColors(int[])}.  The
+     * colors are copied out of the file in one bulk operation.
+     * @return A new color array.
+     */
+    public int[] getColors() {
+        int[] colors = new int[mCount];
+        mColors.duplicate().get(colors);
+        return colors;
+    }
+
+    /**
+     * Check whether this palette contains names of its colors.
+     */
+    public boolean hasNames() {
+        return mNameOffsets != null;
+    }
+
+    /**
+     * Get the name of the color at {@code index}.
+     * @return The name of the color, or {@code null} if this palette contains no names.
+     */
+    public String getName(int index) {
+        if (mNameOffsets == null) {
+            return null;
+        }
+        if (index < 0 || index >= mCount) {
+            throw new IndexOutOfBoundsException("Invalid color index " + index + ".");
+        }
+        int start = mNameOffsets.get(index);
+        int length = mNameOffsets.get(index + 1) - start;
+        byte[] bytes = new byte[length];
+        ByteBuffer names = mBuffer.duplicate();
+        names.position(mNamesPosition + start);
+        names.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    /**
+     * Check whether this palette contains the sort keys of its colors.
+     */
+    public boolean hasSortKeys() {
+        return mSortKeys != null;
+    }
+
+    /**
+     * Get the {@link HsvColorComparator#sortKey(int)} of the color at {@code index}.  It is
+     * computed if this palette contains no sort keys.
+     */
+    public long getSortKey(int index) {
+        if (mSortKeys == null) {
+            return HsvColorComparator.sortKey(mColors.get(index));
+        }
+        return mSortKeys.get(index);
+    }
+
+    /**
+     * Writes a palette file.
+     * @param file The file to write to.  An existing file is overwritten.
+     * @param colors The colors of the palette.
+     * @param names The names of the colors, with the same length as {@code colors}, or
+     *              {@code null} to write no names.  {@code null} elements are written as empty
+     *              names.
+     * @param sortKeys {@code true} to write the {@link HsvColorComparator#sortKey(int)} of every
+     *                 color.
+     * @throws IOException When the file cannot be written.
+     */
+    public static void write(File file, int[] colors, String[] names, boolean sortKeys)
+            throws IOException {
+        OutputStream out = new FileOutputStream(file);
+        try {
+            write(out, colors, names, sortKeys);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Writes a palette file to a stream, see {@link #write(File, int[], String[], boolean)}.
+     * The stream is flushed, but not closed.
+     */
+    public static void write(OutputStream stream, int[] colors, String[] names, boolean sortKeys)
+            throws IOException {
+        if (names != null && names.length != colors.length) {
+            throw new IllegalArgumentException("There must be as many names as colors.");
+        }
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeShort((names != null ? FLAG_NAMES : 0) | (sortKeys ? FLAG_SORT_KEYS : 0));
+        out.writeInt(colors.length);
+        out.writeInt(0);
+
+        if (sortKeys) {
+            for (int color : colors) {
+                out.writeLong(HsvColorComparator.sortKey(color));
+            }
+        }
+        for (int color : colors) {
+            out.writeInt(color);
+        }
+        if (names != null) {
+            byte[][] encodedNames = new byte[names.length][];
+            int offset = 0;
+            out.writeInt(offset);
+            for (int i = 0; i < names.length; i++) {
+                encodedNames[i] = names[i] == null ? new byte[0] : names[i].getBytes(UTF_8);
+                offset += encodedNames[i].length;
+                out.writeInt(offset);
+            }
+            for (byte[] name : encodedNames) {
+                out.write(name);
+            }
+        }
+        out.flush();
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.woalk.apps.lib.colorpicker;
+
+/**
+ * Loads the colors of a {@link ColorPickerDialog}, e.g. from a file or a database.
+ * Set it with {@link ColorPickerDialog#setPaletteProvider(ColorPaletteProvider)}.
+ */
+public interface ColorPaletteProvider {
+
+    /**
+     * Load the colors to show.  Called on a background thread, never on the main thread.
+     * <br/><br/>
+     * If the dialog is dismissed while loading, the loading thread is interrupted and the result
+     * is dropped.  Long loading operations can check {@link Thread#interrupted()} to stop early.
+     * @return A color array, containing all colors that should be selectable in the dialog, or
+     * {@code null} if the colors could not be loaded.
+     * @throws Exception When the colors could not be loaded.
+     */
+    public int[] loadColors() throws Exception;
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.woalk.apps.lib.colorpicker;
+
+import com.woalk.apps.lib.colorpicker.ColorPickerSwatch.OnColorSelectedListener;
+
+/**
+ * A view which shows a grid of color swatches for a {@link ColorPickerDialog}.
+ * Swatches are placed in a serpentine format, i.e. every odd-numbered row is filled from the end.
+ */
+public interface ColorPaletteView {
+
+    /**
+     * Initialize the size, columns, and listener.  Size should be a pre-defined size (SIZE_LARGE
+     * or SIZE_SMALL) from {@link ColorPickerDialog}.
+     */
+    public void init(int size, int columns, OnColorSelectedListener listener);
+
+    /**
+     * Show the given colors, marking {@code selectedColor} with a checkmark.
+     */
+    public void drawPalette(int[] colors, int selectedColor);
+
+    /**
+     * Set a listener for the timings of this view, or {@code null}.
+     */
+    public void setMetricsListener(PaletteMetricsListener listener);
+
+    /**
+     * Implemented by {@link android.view.View#setVisibility(int)}.
+     */
+    public void setVisibility(int visibility);
+}
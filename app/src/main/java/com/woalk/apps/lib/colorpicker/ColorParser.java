@@ -0,0 +1,287 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.woalk.apps.lib.colorpicker;
+
+/**
+ * Parses color strings into color ints {@code (0xAARRGGBB)} without allocating, directly from any
+ * {@link CharSequence}, e.g. the {@link android.text.Editable} of an
+ * {@link android.widget.EditText}.
+ * <br/><br/>
+ * <b>Supported formats are:</b>
+ * <ul>
+ * <li>{@code #RGB}</li>
+ * <li>{@code #ARGB}</li>
+ * <li>{@code #RRGGBB}</li>
+ * <li>{@code #AARRGGBB}</li>
+ * <li>One of the 148 color names of the CSS Color Module, e.g. 'red', 'cornflowerblue',
+ * 'rebeccapurple' (case-insensitive)</li>
+ * </ul>
+ * The names 'black', 'darkgray', 'gray', 'lightgray', 'white', 'red', 'green', 'blue', 'yellow',
+ * 'cyan', 'magenta' (and the 'grey' variants) have the values of the {@code android.graphics.Color}
+ * constants, e.g. 'green' is {@code #00FF00}, not {@code #008000} as in CSS.
+ */
+public final class ColorParser {
+
+    /** Returned by {@link #tryParseColor(CharSequence)} for strings which are not a color. */
+    public static final long INVALID_COLOR = -1L;
+
+    private ColorParser() {
+    }
+
+    /**
+     * Parse the color string into a usable color int.
+     * @param colorString The color string in one of the supported formats.
+     * @return The requested color int {@code (0xAARRGGBB)}.
+     * @throws IllegalArgumentException When the color string provided is invalid.
+     */
+    public static int parseColor(CharSequence colorString) throws IllegalArgumentException {
+        long color = tryParseColor(colorString);
+        if (color == INVALID_COLOR) {
+            throw new IllegalArgumentException("Unknown color");
+        }
+        return (int) color;
+    }
+
+    /**
+     * Parse the color string without throwing for invalid input.
+     * @param colorString The color string in one of the supported formats.
+     * @return The color int {@code (0xAARRGGBB)} in the lower 32 bits, which can be cast to
+     *         {@code int}, or {@link #INVALID_COLOR} when the color string is invalid.
+     */
+    public static long tryParseColor(CharSequence colorString) {
+        int length = colorString.length();
+        if (length == 0) {
+            return INVALID_COLOR;
+        }
+        if (colorString.charAt(0) != '#') {
+            return parseColorName(colorString);
+        }
+
+        return tryParseHexColor(colorString, 1);
+    }
+
+    /**
+     * Parse the hex digits of a color from {@code start} to the end of the string, e.g. the
+     * text after the {@code '#'} of {@code "#RRGGBB"}.  Accepts 3, 4, 6 or 8 digits, like
+     * {@link #tryParseColor(CharSequence)}.
+     * @return The color int {@code (0xAARRGGBB)} in the lower 32 bits, or {@link #INVALID_COLOR}
+     *         when the digits are invalid.
+     */
+    static long tryParseHexColor(CharSequence s, int start) {
+        int a;
+        int r;
+        int g;
+        int b;
+        switch (s.length() - start) {
+            case 3: // each digit is one color (#RGB), and represents the number twice
+                a = 0xff; // fixed alpha full 255 (opaque)
+                r = doubleDigit(s, start);
+                g = doubleDigit(s, start + 1);
+                b = doubleDigit(s, start + 2);
+                break;
+            case 4: // each digit is one color or alpha (#ARGB)
+                a = doubleDigit(s, start);
+                r = doubleDigit(s, start + 1);
+                g = doubleDigit(s, start + 2);
+                b = doubleDigit(s, start + 3);
+                break;
+            case 6: // full color notation without alpha (#RRGGBB)
+                a = 0xff;
+                r = twoDigits(s, start);
+                g = twoDigits(s, start + 2);
+                b = twoDigits(s, start + 4);
+                break;
+            case 8: // full color notation with alpha (#AARRGGBB)
+                a = twoDigits(s, start);
+                r = twoDigits(s, start + 2);
+                g = twoDigits(s, start + 4);
+                b = twoDigits(s, start + 6);
+                break;
+            default:
+                return INVALID_COLOR;
+        }
+        if ((a | r | g | b) < 0) {
+            return INVALID_COLOR;
+        }
+        return ColorMath.argb(a, r, g, b) & 0xffffffffL;
+    }
+
+    /**
+     * Returns whether the string can be parsed by {@link #parseColor(CharSequence)}.
+     */
+    public static boolean isColor(CharSequence colorString) {
+        return tryParseColor(colorString) != INVALID_COLOR;
+    }
+
+    /**
+     * Returns the value of one hex digit written twice ({@code 'a' == 0xaa}), or a negative value.
+     */
+    private static int doubleDigit(CharSequence s, int index) {
+        int digit = Character.digit(s.charAt(index), 16);
+        return digit < 0 ? -1 : digit * 0x11;
+    }
+
+    /**
+     * Returns the value of two hex digits, or a negative value.
+     */
+    private static int twoDigits(CharSequence s, int index) {
+        int high = Character.digit(s.charAt(index), 16);
+        int low = Character.digit(s.charAt(index + 1), 16);
+        if (high < 0 || low < 0) {
+            return -1;
+        }
+        return (high << 4) | low;
+    }
+
+    private static long parseColorName(CharSequence colorString) {
+        int length = colorString.length();
+        if (length > MAX_COLOR_NAME_LENGTH) {
+            return INVALID_COLOR;
+        }
+
+        int plainSlot = hashColorName(0, colorString);
+        if (plainSlot < 0) {
+            return INVALID_COLOR;
+        }
+        int seed = COLOR_NAME_SEEDS[plainSlot];
+        int slot = seed < 0 ? -seed - 1 : hashColorName(seed, colorString);
+        int start = slot == 0 ? 0 : COLOR_NAME_ENDS[slot - 1];
+        if (COLOR_NAME_ENDS[slot] - start != length) {
+            return INVALID_COLOR;
+        }
+        for (int i = 0; i < length; i++) {
+            if (toLowerAscii(colorString.charAt(i)) != COLOR_NAMES.charAt(start + i)) {
+                return INVALID_COLOR;
+            }
+        }
+        return COLOR_VALUES[slot] & 0xffffffffL;
+    }
+
+    /**
+     * 32-bit FNV-1a hash of the lower cased string, starting at {@code seed} instead of the FNV
+     * offset basis if it is not {@code 0}, reduced to a slot of the color name table.
+     * @return The slot, or {@code -1} if the string contains a character no color name has.
+     */
+    private static int hashColorName(int seed, CharSequence s) {
+        int hash = seed == 0 ? 0x811c9dc5 : seed;
+        for (int i = 0; i < s.length(); i++) {
+            int c = toLowerAscii(s.charAt(i));
+            if (c < 0) {
+                return -1;
+            }
+            hash = (hash ^ c) * 0x01000193;
+        }
+        return (hash & 0x7fffffff) % COLOR_VALUES.length;
+    }
+
+    /**
+     * Lower cases {@code c} like {@code String.toLowerCase(Locale.ROOT)} does for the characters
+     * of color names, which are all ASCII.  Only {@code 'A'..'Z'} are folded, so e.g. a dotted
+     * capital I doesn't become an {@code 'i'}.
+     * @return The lower cased ASCII character, or {@code -1} for any other character.
+     */
+    private static int toLowerAscii(char c) {
+        if (c >= 'A' && c <= 'Z') {
+            return c | 0x20;
+        }
+        if (c <= 0x7f) {
+            return c;
+        }
+        // The Kelvin sign is the only other character which String.toLowerCase turns into ASCII.
+        return c == '\u212a' ? 'k' : -1;
+    }
+
+    private static final int MAX_COLOR_NAME_LENGTH = 20;
+
+    /*
+     * The CSS color names in a minimal perfect hash table of hash-and-displace type: the seed
+     * at the slot of a name's plain hash either is the negative slot of the name minus one, or the
+     * seed to hash the name again with to get its slot.  Each slot holds exactly one name, so a
+     * lookup hashes at most twice and compares one name.
+     *
+     * COLOR_NAMES holds all names in slot order, COLOR_NAME_ENDS the end of the name of each slot
+     * in it.  The values are those of the CSS Color Module, except the names Android's
+     * Color.parseColor knows, which keep the values of the android.graphics.Color constants.
+     */
+    private static final String COLOR_NAMES =
+            "greyolivedrablightcyancornflowerbluelightyellowlightsteelblueroyalblue" +
+            "mediumvioletreddarkorangeslategreylightseagreenthistledarkredsalmonmediumorchid" +
+            "linendarkorchidhoneydewpowderblueseashelldarkvioletmintcreamturquoisedarkgreen" +
+            "lightcoralseagreenivorylightslategreymoccasingoldenrodcyanwhiteaquakhaki" +
+            "sandybrowngainsborobrowntealcadetbluepeachpuffrebeccapurpleyellowpalegreen" +
+            "lavenderblushnavajowhitebisquedarkslategrayplumslatebluemidnightbluedimgrey" +
+            "chartreusesiennadarkolivegreendarkturquoisewhitesmokelightgreyhotpinkghostwhite" +
+            "darkgoldenrodmediumpurplesteelbluechocolatetomatolightgraylavenderblueviolet" +
+            "indigoyellowgreenspringgreenorchidgreenazuremaroonlightgreendarkseagreensnow" +
+            "lightsalmonfirebrickmediumslatebluemediumbluelightslategraypapayawhip" +
+            "mediumturquoiseindianreddarkkhakidarkslatebluemediumaquamarineolivegoldlightpink" +
+            "skybluedarkmagentadarkbluecornsilkforestgreengrayblueantiquewhitepinkblack" +
+            "lightbluedodgerblueaquamarinelightgoldenrodyellowpaleturquoiseorangeredaliceblue" +
+            "limegreenrosybrownsaddlebrowndeeppinkpalevioletredbeigevioletlawngreen" +
+            "palegoldenrodcoraldarkgraydeepskyblueburlywooddarkslategreydimgraywheat" +
+            "mediumspringgreennavyslategraydarksalmongreenyellowmagentacrimsonoldlace" +
+            "mediumseagreenfuchsiapurpleorangetansilverdarkgreylemonchiffondarkcyanmistyrose" +
+            "redperufloralwhiteblanchedalmondlimelightskyblue";
+
+    private static final short[] COLOR_NAME_ENDS = {
+            4, 13, 22, 36, 47, 61, 70, 85, 95, 104, 117, 124, 131, 137, 149, 154, 164, 172, 182,
+            190, 200, 209, 218, 227, 237, 245, 250, 264, 272, 281, 285, 290, 294, 299, 309, 318,
+            323, 327, 336, 345, 358, 364, 373, 386, 397, 403, 416, 420, 429, 441, 448, 458, 464,
+            478, 491, 501, 510, 517, 527, 540, 552, 561, 570, 576, 585, 593, 603, 609, 620, 631,
+            637, 642, 647, 653, 663, 675, 679, 690, 699, 714, 724, 738, 748, 763, 772, 781, 794,
+            810, 815, 819, 828, 835, 846, 854, 862, 873, 877, 881, 893, 897, 902, 911, 921, 931,
+            951, 964, 973, 982, 991, 1000, 1011, 1019, 1032, 1037, 1043, 1052, 1065, 1070, 1078,
+            1089, 1098, 1111, 1118, 1123, 1140, 1144, 1153, 1163, 1174, 1181, 1188, 1195, 1209,
+            1216, 1222, 1228, 1231, 1237, 1245, 1257, 1265, 1274, 1277, 1281, 1292, 1306, 1310,
+            1322
+    };
+
+    private static final short[] COLOR_NAME_SEEDS = {
+            0, 0, 2, 3, -147, 0, 1, 3, -143, 0, 0, 1, -142, 0, -139, 1, -138, 0, 0, -135, 1, -132,
+            -131, 1, 2, 1, 0, 4, 0, 5, 1, 0, -129, 0, 1, -128, -124, 0, -123, 0, 8, 0, -118, 0, 0,
+            0, -115, -114, 0, 0, 0, -112, 0, 0, 2, 0, 1, 0, -111, -108, 3, 1, 0, -104, 0, -100,
+            -97, -96, 0, 0, 4, 0, -93, 1, 3, -91, 1, 0, -87, 0, 0, 8, -75, 0, -72, 0, -71, -68, 1,
+            -63, 1, 1, -62, -60, 7, -56, 1, 6, -55, -54, 0, -52, -49, 0, 2, 8, 0, -45, 0, -40, 0,
+            -37, 0, 0, -32, 0, 7, -30, -27, 0, -24, 1, -23, 0, 0, -22, 0, 1, 0, 6, -20, 3, -18, 6,
+            3, -14, -12, 1, 0, -9, -8, 0, 0, -5, 5, 0, 0, 6
+    };
+
+    private static final int[] COLOR_VALUES = {
+            0xFF888888, 0xFF6B8E23, 0xFFE0FFFF, 0xFF6495ED, 0xFFFFFFE0, 0xFFB0C4DE, 0xFF4169E1,
+            0xFFC71585, 0xFFFF8C00, 0xFF708090, 0xFF20B2AA, 0xFFD8BFD8, 0xFF8B0000, 0xFFFA8072,
+            0xFFBA55D3, 0xFFFAF0E6, 0xFF9932CC, 0xFFF0FFF0, 0xFFB0E0E6, 0xFFFFF5EE, 0xFF9400D3,
+            0xFFF5FFFA, 0xFF40E0D0, 0xFF006400, 0xFFF08080, 0xFF2E8B57, 0xFFFFFFF0, 0xFF778899,
+            0xFFFFE4B5, 0xFFDAA520, 0xFF00FFFF, 0xFFFFFFFF, 0xFF00FFFF, 0xFFF0E68C, 0xFFF4A460,
+            0xFFDCDCDC, 0xFFA52A2A, 0xFF008080, 0xFF5F9EA0, 0xFFFFDAB9, 0xFF663399, 0xFFFFFF00,
+            0xFF98FB98, 0xFFFFF0F5, 0xFFFFDEAD, 0xFFFFE4C4, 0xFF2F4F4F, 0xFFDDA0DD, 0xFF6A5ACD,
+            0xFF191970, 0xFF696969, 0xFF7FFF00, 0xFFA0522D, 0xFF556B2F, 0xFF00CED1, 0xFFF5F5F5,
+            0xFFCCCCCC, 0xFFFF69B4, 0xFFF8F8FF, 0xFFB8860B, 0xFF9370DB, 0xFF4682B4, 0xFFD2691E,
+            0xFFFF6347, 0xFFCCCCCC, 0xFFE6E6FA, 0xFF8A2BE2, 0xFF4B0082, 0xFF9ACD32, 0xFF00FF7F,
+            0xFFDA70D6, 0xFF00FF00, 0xFFF0FFFF, 0xFF800000, 0xFF90EE90, 0xFF8FBC8F, 0xFFFFFAFA,
+            0xFFFFA07A, 0xFFB22222, 0xFF7B68EE, 0xFF0000CD, 0xFF778899, 0xFFFFEFD5, 0xFF48D1CC,
+            0xFFCD5C5C, 0xFFBDB76B, 0xFF483D8B, 0xFF66CDAA, 0xFF808000, 0xFFFFD700, 0xFFFFB6C1,
+            0xFF87CEEB, 0xFF8B008B, 0xFF00008B, 0xFFFFF8DC, 0xFF228B22, 0xFF888888, 0xFF0000FF,
+            0xFFFAEBD7, 0xFFFFC0CB, 0xFF000000, 0xFFADD8E6, 0xFF1E90FF, 0xFF7FFFD4, 0xFFFAFAD2,
+            0xFFAFEEEE, 0xFFFF4500, 0xFFF0F8FF, 0xFF32CD32, 0xFFBC8F8F, 0xFF8B4513, 0xFFFF1493,
+            0xFFDB7093, 0xFFF5F5DC, 0xFFEE82EE, 0xFF7CFC00, 0xFFEEE8AA, 0xFFFF7F50, 0xFF444444,
+            0xFF00BFFF, 0xFFDEB887, 0xFF2F4F4F, 0xFF696969, 0xFFF5DEB3, 0xFF00FA9A, 0xFF000080,
+            0xFF708090, 0xFFE9967A, 0xFFADFF2F, 0xFFFF00FF, 0xFFDC143C, 0xFFFDF5E6, 0xFF3CB371,
+            0xFFFF00FF, 0xFF800080, 0xFFFFA500, 0xFFD2B48C, 0xFFC0C0C0, 0xFF444444, 0xFFFFFACD,
+            0xFF008B8B, 0xFFFFE4E1, 0xFFFF0000, 0xFFCD853F, 0xFFFFFAF0, 0xFFFFEBCD, 0xFF00FF00,
+            0xFF87CEFA
+    };
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.woalk.apps.lib.colorpicker;
+
+import android.content.SharedPreferences;
+import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Persists colors in batches: the colors put within the window after the first pending color
+ * are written to the {@link ColorStore} together, on a background thread.  Until then, and while
+ * they are written, {@link #getColor(String, int)} returns the pending colors.
+ * <br/><br/>
+ * Pending colors are lost if the process dies before they are written, so call {@link #flush()}
+ * when the screen is left, e.g. in {@link android.app.Activity#onPause()}.
+ * See {@link ColorPreference#setColorPersister(ColorPersister)}.
+ */
+public final class ColorPersister {
+
+    private static final String TAG = "ColorPersister";
+
+    /** The default window in which colors are batched. */
+    public static final long DEFAULT_WINDOW_MILLIS = 500;
+
+    private static final Map<SharedPreferences, ColorPersister> sInstances =
+            new WeakHashMap<SharedPreferences, ColorPersister>();
+
+    private final ColorStore mStore;
+    private final long mWindowMillis;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Runnable mFlush = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    /** The colors not yet passed to the store, guarded by {@code this}. */
+    private final Map<String, Integer> mPending = new HashMap<String, Integer>();
+    /** The colors being written by the store, guarded by {@code this}. */
+    private final Map<String, Integer> mWriting = new HashMap<String, Integer>();
+
+    /**
+     * Create a persister batching the colors within {@link #DEFAULT_WINDOW_MILLIS}.
+     * @param store The store to write the colors to.
+     */
+    public ColorPersister(ColorStore store) {
+        this(store, DEFAULT_WINDOW_MILLIS);
+    }
+
+    /**
+     * Create a persister.
+     * @param store The store to write the colors to.
+     * @param windowMillis The time after the first pending color until the pending colors are
+     *                     written.
+     */
+    public ColorPersister(ColorStore store, long windowMillis) {
+        mStore = store;
+        mWindowMillis = windowMillis;
+    }
+
+    /**
+     * Get the shared persister of {@link SharedPreferences}, batching the colors within
+     * {@link #DEFAULT_WINDOW_MILLIS}.
+     * @param preferences The preferences to write the colors to.
+     * @return The persister, the same for the same preferences.
+     */
+    public static ColorPersister forSharedPreferences(SharedPreferences preferences) {
+        synchronized (sInstances) {
+            ColorPersister persister = sInstances.get(preferences);
+            if (persister == null) {
+                persister = new ColorPersister(new SharedPreferencesColorStore(preferences));
+                sInstances.put(preferences, persister);
+            }
+            return persister;
+        }
+    }
+
+    /**
+     * Write the pending colors of all persisters returned by
+     * {@link #forSharedPreferences(SharedPreferences)} now.
+     */
+    public static void flushAll() {
+        List<ColorPersister> persisters;
+        synchronized (sInstances) {
+            persisters = new ArrayList<ColorPersister>(sInstances.values());
+        }
+        for (ColorPersister persister : persisters) {
+            persister.flush();
+        }
+    }
+
+    /**
+     * Check whether a color is pending or stored.
+     * @param key The key of the color.
+     * @return {@code true} if there is a color for the key.
+     */
+    public boolean contains(String key) {
+        synchronized (this) {
+            if (mPending.containsKey(key) || mWriting.containsKey(key)) {
+                return true;
+            }
+        }
+        return mStore.contains(key);
+    }
+
+    /**
+     * Get a color, pending or stored.
+     * @param key The key of the color.
+     * @param defaultColor The color to return if there is none for the key.
+     * @return The color, or {@code defaultColor}.
+     */
+    public int getColor(String key, int defaultColor) {
+        synchronized (this) {
+            Integer color = mPending.get(key);
+            if (color == null) {
+                color = mWriting.get(key);
+            }
+            if (color != null) {
+                return color;
+            }
+        }
+        return mStore.getColor(key, defaultColor);
+    }
+
+    /**
+     * Put a color, to be written with the other colors put within the window.
+     * @param key The key of the color.
+     * @param color The color.
+     */
+    public void putColor(String key, int color) {
+        boolean schedule;
+        synchronized (this) {
+            schedule = mPending.isEmpty();
+            mPending.put(key, color);
+        }
+        if (schedule) {
+            mHandler.postDelayed(mFlush, mWindowMillis);
+        }
+    }
+
+    /**
+     * Write the pending colors now.  They are written on a background thread, but
+     * {@link #getColor(String, int)} returns them right away.
+     */
+    public void flush() {
+        mHandler.removeCallbacks(mFlush);
+        final Map<String, Integer> batch;
+        synchronized (this) {
+            if (mPending.isEmpty()) {
+                return;
+            }
+            batch = new HashMap<String, Integer>(mPending);
+            mPending.clear();
+            mWriting.putAll(batch);
+        }
+
+        AsyncTask.SERIAL_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    mStore.putColors(batch);
+                } catch (IOException e) {
+                    Log.e(TAG, "Could not write " + batch.size() + " colors", e);
+                }
+                synchronized (ColorPersister.this) {
+                    for (Map.Entry<String, Integer> entry : batch.entrySet()) {
+                        if (entry.getValue().equals(mWriting.get(entry.getKey()))) {
+                            mWriting.remove(entry.getKey());
+                        }
+                    }
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,644 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.woalk.apps.lib.colorpicker;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.os.Bundle;
+import android.util.AttributeSet;
+import android.view.KeyEvent;
+import android.view.MotionEvent;
+import android.view.SoundEffectConstants;
+import android.view.View;
+import android.view.ViewParent;
+import android.view.accessibility.AccessibilityEvent;
+import android.view.accessibility.AccessibilityManager;
+import android.view.accessibility.AccessibilityNodeInfo;
+import android.view.accessibility.AccessibilityNodeProvider;
+
+import com.woalk.apps.lib.colorpicker.ColorPickerSwatch.OnColorSelectedListener;
+
+import java.util.Arrays;
+
+/**
+ * A color picker custom view which draws the same serpentine grid of color circles as
+ * {@link ColorPickerPalette}, but measures, lays out and draws all swatches itself on a single
+ * {@link Canvas} instead of creating a {@link ColorPickerSwatch} view per color.
+ * <br/><br/>
+ * From Jelly Bean on, the swatches are exposed to accessibility services as virtual views, whose
+ * descriptions and bounds are only created when a service asks for them.  With a D-pad or a
+ * keyboard, the arrow keys move the focus between the swatches, and the center or enter key
+ * selects the focused swatch.
+ */
+public class ColorPickerCanvasPalette extends View implements ColorPaletteView {
+
+    public OnColorSelectedListener mOnColorSelectedListener;
+
+    private final Paint mSwatchPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final RectF mSwatchRect = new RectF();
+    private final Rect mClipRect = new Rect();
+    private Drawable mCheckmark;
+
+    private int[] mColors;
+    private int mSelectedColor;
+    private int mPressedIndex = -1;
+    private int mFocusedIndex = -1;
+    private int mHoveredIndex = -1;
+    private int mAccessibilityFocusedIndex = -1;
+
+    private final AccessibilityManager mAccessibilityManager;
+    private AccessibilityNodeProvider mAccessibilityNodeProvider;
+    private final Rect mAccessibilityRect = new Rect();
+    private final Rect mVisibleRect = new Rect();
+    private final int[] mLocationOnScreen = new int[2];
+    private final Rect mFocusRect = new Rect();
+
+    private PaletteGeometry mGeometry;
+
+    private PaletteMetrics mMetrics;
+
+    public ColorPickerCanvasPalette(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        setClickable(true);
+        setFocusable(true);
+        mAccessibilityManager = (AccessibilityManager) context.getSystemService(
+                Context.ACCESSIBILITY_SERVICE);
+    }
+
+    public ColorPickerCanvasPalette(Context context) {
+        super(context);
+        setClickable(true);
+        setFocusable(true);
+        mAccessibilityManager = (AccessibilityManager) context.getSystemService(
+                Context.ACCESSIBILITY_SERVICE);
+    }
+
+    /**
+     * Initialize the size, columns, and listener.  Size should be a pre-defined size (SIZE_LARGE
+     * or SIZE_SMALL) from ColorPickerDialogFragment.
+     */
+    @Override
+    public void init(int size, int columns, OnColorSelectedListener listener) {
+        Resources res = getResources();
+        if (size == ColorPickerDialog.SIZE_LARGE) {
+            mGeometry = new PaletteGeometry(columns,
+                    res.getDimensionPixelSize(R.dimen.color_swatch_large),
+                    res.getDimensionPixelSize(R.dimen.color_swatch_margins_large));
+        } else {
+            mGeometry = new PaletteGeometry(columns,
+                    res.getDimensionPixelSize(R.dimen.color_swatch_small),
+                    res.getDimensionPixelSize(R.dimen.color_swatch_margins_small));
+        }
+        mGeometry.setColorCount(mColors != null ? mColors.length : 0);
+        mOnColorSelectedListener = listener;
+        mCheckmark = res.getDrawable(R.drawable.ic_colorpicker_swatch_selected);
+        requestLayout();
+    }
+
+    @Override
+    public void setMetricsListener(PaletteMetricsListener listener) {
+        mMetrics = listener != null ? new PaletteMetrics(listener) : null;
+    }
+
+    /**
+     * Shows the swatches in a serpentine format.  No views are created, the palette is only
+     * re-measured if the number of rows changed.
+     */
+    @Override
+    public void drawPalette(int[] colors, int selectedColor) {
+        if (colors == null) {
+            return;
+        }
+
+        long start = mMetrics != null ? System.nanoTime() : 0;
+        int oldRows = getRowCount();
+        mColors = colors;
+        if (mGeometry != null) {
+            mGeometry.setColorCount(colors.length);
+        }
+        mSelectedColor = selectedColor;
+        mPressedIndex = -1;
+        mHoveredIndex = -1;
+        mAccessibilityFocusedIndex = -1;
+        if (mFocusedIndex >= colors.length) {
+            mFocusedIndex = colors.length - 1;
+        } else if (mFocusedIndex == -1 && isFocused()) {
+            mFocusedIndex = getSelectedIndex();
+        }
+        if (getRowCount() != oldRows) {
+            requestLayout();
+        }
+        invalidate();
+        if (mAccessibilityManager.isEnabled()) {
+            sendAccessibilityEvent(AccessibilityEvent.TYPE_WINDOW_CONTENT_CHANGED);
+        }
+        if (mMetrics != null) {
+            mMetrics.listener.onPaletteDrawn(System.nanoTime() - start, 0, getRowCount(), 0);
+        }
+    }
+
+    private int getRowCount() {
+        return mGeometry != null ? mGeometry.getRowCount() : 0;
+    }
+
+    /**
+     * Brings the padding and the layout direction of the geometry up to date.
+     */
+    private void updateGeometry() {
+        mGeometry.setPadding(getPaddingLeft(), getPaddingTop());
+        mGeometry.setRtl(isRtl());
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR1)
+    private boolean isRtl() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1
+                && getLayoutDirection() == LAYOUT_DIRECTION_RTL;
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        long start = mMetrics != null ? mMetrics.startPass(PaletteMetrics.PASS_MEASURE) : 0;
+        int width = getPaddingLeft() + getPaddingRight();
+        int height = getPaddingTop() + getPaddingBottom();
+        if (mGeometry != null) {
+            width += mGeometry.getWidth();
+            height += mGeometry.getHeight();
+        }
+        setMeasuredDimension(resolveSize(Math.max(width, getSuggestedMinimumWidth()),
+                        widthMeasureSpec),
+                resolveSize(Math.max(height, getSuggestedMinimumHeight()), heightMeasureSpec));
+        if (mMetrics != null) {
+            mMetrics.endPass(PaletteMetrics.PASS_MEASURE, start);
+        }
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        long start = mMetrics != null ? mMetrics.startPass(PaletteMetrics.PASS_LAYOUT) : 0;
+        super.onLayout(changed, left, top, right, bottom);
+        if (mMetrics != null) {
+            mMetrics.endPass(PaletteMetrics.PASS_LAYOUT, start);
+        }
+    }
+
+    @Override
+    public void draw(Canvas canvas) {
+        long start = mMetrics != null ? mMetrics.startPass(PaletteMetrics.PASS_DRAW) : 0;
+        super.draw(canvas);
+        if (mMetrics != null) {
+            mMetrics.endPass(PaletteMetrics.PASS_DRAW, start);
+        }
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        if (mColors == null || mGeometry == null) {
+            return;
+        }
+
+        updateGeometry();
+        int columns = mGeometry.getColumnCount();
+        int firstRow = 0;
+        int lastRow = getRowCount() - 1;
+        // Only draw the rows which are visible, e.g. inside of a ScrollView.
+        if (canvas.getClipBounds(mClipRect)) {
+            firstRow = Math.max(firstRow, mGeometry.getRowAt(mClipRect.top));
+            lastRow = Math.min(lastRow, mGeometry.getRowAt(mClipRect.bottom));
+        }
+
+        for (int row = firstRow; row <= lastRow; row++) {
+            int rowStart = row * columns;
+            int rowEnd = Math.min(rowStart + columns, mColors.length);
+            for (int index = rowStart; index < rowEnd; index++) {
+                drawSwatch(canvas, index);
+            }
+        }
+    }
+
+    private void drawSwatch(Canvas canvas, int index) {
+        int color = mColors[index];
+        setSwatchRect(index);
+
+        if (index == mPressedIndex || (index == mFocusedIndex && isFocused())) {
+            // Pressed and focused swatches look the same, as in ColorStateDrawable.
+            mSwatchPaint.setColor(ColorStateDrawable.getPressedColor(getOpaqueColor(color)));
+        } else {
+            mSwatchPaint.setColor(getOpaqueColor(color));
+        }
+        canvas.drawOval(mSwatchRect, mSwatchPaint);
+
+        if (color == mSelectedColor && mCheckmark != null) {
+            mCheckmark.setBounds((int) mSwatchRect.left, (int) mSwatchRect.top,
+                    (int) mSwatchRect.right, (int) mSwatchRect.bottom);
+            mCheckmark.draw(canvas);
+        }
+    }
+
+    /**
+     * Sets {@code mSwatchRect} to the bounds of the swatch at {@code index}, see
+     * {@link PaletteGeometry}.
+     */
+    private void setSwatchRect(int index) {
+        float left = mGeometry.getSwatchLeft(index);
+        float top = mGeometry.getSwatchTop(index);
+        int length = mGeometry.getSwatchLength();
+        mSwatchRect.set(left, top, left + length, top + length);
+    }
+
+    /**
+     * Returns the index of the color at the given position in this view, or {@code -1} if there
+     * is no swatch at that position.
+     */
+    private int getIndexAt(float x, float y) {
+        if (mColors == null || mGeometry == null) {
+            return -1;
+        }
+        updateGeometry();
+        return mGeometry.getIndexAt(x, y);
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        if (!isEnabled()) {
+            return super.onTouchEvent(event);
+        }
+
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                setPressedIndex(getIndexAt(event.getX(), event.getY()));
+                return mPressedIndex != -1 || super.onTouchEvent(event);
+            case MotionEvent.ACTION_MOVE:
+                if (mPressedIndex != -1
+                        && getIndexAt(event.getX(), event.getY()) != mPressedIndex) {
+                    setPressedIndex(-1);
+                }
+                return true;
+            case MotionEvent.ACTION_UP:
+                int index = mPressedIndex;
+                setPressedIndex(-1);
+                if (index != -1) {
+                    if (mMetrics != null) {
+                        mMetrics.onTouchEvent(event);
+                        mMetrics.onColorSelected();
+                    }
+                    performClick();
+                    selectSwatch(index);
+                }
+                return true;
+            case MotionEvent.ACTION_CANCEL:
+                setPressedIndex(-1);
+                return true;
+        }
+        return super.onTouchEvent(event);
+    }
+
+    /**
+     * Called when a swatch is tapped or selected with a key, right before its color is selected.
+     * Notifies a click listener and accessibility services of the click, and plays the click
+     * sound.
+     */
+    @Override
+    public boolean performClick() {
+        if (!super.performClick()) {
+            // The click sound is only played by View if there is a click listener.
+            playSoundEffect(SoundEffectConstants.CLICK);
+        }
+        return true;
+    }
+
+    private void selectSwatch(int index) {
+        if (mOnColorSelectedListener != null) {
+            mOnColorSelectedListener.onColorSelected(mColors[index]);
+        }
+    }
+
+    /**
+     * Returns the index of the selected color, the first color if no color is selected, or
+     * {@code -1} if there are no colors.
+     */
+    private int getSelectedIndex() {
+        if (mColors == null || mColors.length == 0) {
+            return -1;
+        }
+        for (int i = 0; i < mColors.length; i++) {
+            if (mColors[i] == mSelectedColor) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    protected void onFocusChanged(boolean gainFocus, int direction, Rect previouslyFocusedRect) {
+        super.onFocusChanged(gainFocus, direction, previouslyFocusedRect);
+        if (gainFocus && mFocusedIndex == -1) {
+            setFocusedIndex(getSelectedIndex());
+        }
+        invalidate();
+    }
+
+    @Override
+    public boolean onKeyDown(int keyCode, KeyEvent event) {
+        if (!isEnabled() || mGeometry == null || mFocusedIndex == -1) {
+            return super.onKeyDown(keyCode, event);
+        }
+
+        switch (keyCode) {
+            case KeyEvent.KEYCODE_DPAD_LEFT:
+                return moveFocus(0, -1);
+            case KeyEvent.KEYCODE_DPAD_RIGHT:
+                return moveFocus(0, 1);
+            case KeyEvent.KEYCODE_DPAD_UP:
+                return moveFocus(-1, 0);
+            case KeyEvent.KEYCODE_DPAD_DOWN:
+                return moveFocus(1, 0);
+            case KeyEvent.KEYCODE_DPAD_CENTER:
+            case KeyEvent.KEYCODE_ENTER:
+                setPressedIndex(mFocusedIndex);
+                return true;
+        }
+        return super.onKeyDown(keyCode, event);
+    }
+
+    @Override
+    public boolean onKeyUp(int keyCode, KeyEvent event) {
+        if ((keyCode == KeyEvent.KEYCODE_DPAD_CENTER || keyCode == KeyEvent.KEYCODE_ENTER)
+                && mPressedIndex != -1) {
+            int index = mPressedIndex;
+            setPressedIndex(-1);
+            performClick();
+            selectSwatch(index);
+            return true;
+        }
+        return super.onKeyUp(keyCode, event);
+    }
+
+    /**
+     * Moves the focus to the swatch a number of rows down and columns to the right.  Moving down
+     * to a blank cell of the last row focuses the last color.
+     * @return {@code false} if there is no swatch in that direction, so the focus can leave the
+     * palette.
+     */
+    private boolean moveFocus(int rows, int columns) {
+        updateGeometry();
+        int row = mGeometry.getRow(mFocusedIndex) + rows;
+        int index = mGeometry.getIndex(row, mGeometry.getColumn(mFocusedIndex) + columns);
+        if (index == -1 && rows > 0 && row < mGeometry.getRowCount()) {
+            index = mColors.length - 1;
+        }
+        if (index == -1) {
+            return false;
+        }
+        setFocusedIndex(index);
+        return true;
+    }
+
+    private void setFocusedIndex(int index) {
+        if (mFocusedIndex == index) {
+            return;
+        }
+        mFocusedIndex = index;
+        invalidate();
+        if (index == -1 || mGeometry == null) {
+            return;
+        }
+
+        // Scroll the swatch into view, e.g. inside of a ScrollView.
+        updateGeometry();
+        setSwatchRect(index);
+        mFocusRect.set((int) mSwatchRect.left, (int) mSwatchRect.top,
+                (int) mSwatchRect.right, (int) mSwatchRect.bottom);
+        requestRectangleOnScreen(mFocusRect);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            sendEventForSwatch(index, AccessibilityEvent.TYPE_VIEW_FOCUSED);
+        }
+    }
+
+    @Override
+    protected boolean dispatchHoverEvent(MotionEvent event) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN
+                || !mAccessibilityManager.isTouchExplorationEnabled()) {
+            return super.dispatchHoverEvent(event);
+        }
+
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_HOVER_ENTER:
+            case MotionEvent.ACTION_HOVER_MOVE:
+                int index = getIndexAt(event.getX(), event.getY());
+                setHoveredIndex(index);
+                return index != -1;
+            case MotionEvent.ACTION_HOVER_EXIT:
+                setHoveredIndex(-1);
+                return true;
+        }
+        return super.dispatchHoverEvent(event);
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private void setHoveredIndex(int index) {
+        if (mHoveredIndex == index) {
+            return;
+        }
+        int oldIndex = mHoveredIndex;
+        mHoveredIndex = index;
+        if (index != -1) {
+            sendEventForSwatch(index, AccessibilityEvent.TYPE_VIEW_HOVER_ENTER);
+        }
+        if (oldIndex != -1) {
+            sendEventForSwatch(oldIndex, AccessibilityEvent.TYPE_VIEW_HOVER_EXIT);
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    @Override
+    public AccessibilityNodeProvider getAccessibilityNodeProvider() {
+        if (mAccessibilityNodeProvider == null) {
+            mAccessibilityNodeProvider = new SwatchNodeProvider();
+        }
+        return mAccessibilityNodeProvider;
+    }
+
+    /**
+     * Returns the content description of the swatch at {@code index}.  Because the colors are
+     * placed in a snaking form, every other row compensates for the fact that the colors are
+     * placed in the opposite direction from their left->right/top->bottom order, which is how the
+     * system arranges them for accessibility purposes.
+     */
+    private String getSwatchDescription(int index) {
+        int accessibilityIndex = mGeometry.getAccessibilityIndex(index);
+        return getResources().getString(mColors[index] == mSelectedColor
+                ? R.string.color_swatch_description_selected : R.string.color_swatch_description,
+                accessibilityIndex);
+    }
+
+    /**
+     * Returns the ids of the virtual views of the swatches, the indices of their colors, in
+     * left->right/top->bottom order.  The blank cells which pad the last row are skipped.
+     */
+    int[] getVirtualViewIds() {
+        if (mColors == null || mGeometry == null) {
+            return new int[0];
+        }
+        int[] ids = new int[mColors.length];
+        int count = 0;
+        int cells = mGeometry.getRowCount() * mGeometry.getColumnCount();
+        for (int position = 0; position < cells; position++) {
+            int index = mGeometry.getIndexInReadingOrder(position);
+            if (index >= 0 && index < mColors.length) {
+                ids[count++] = index;
+            }
+        }
+        return count == ids.length ? ids : Arrays.copyOf(ids, count);
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private void sendEventForSwatch(int index, int eventType) {
+        ViewParent parent = getParent();
+        if (parent == null || !mAccessibilityManager.isEnabled()) {
+            return;
+        }
+        AccessibilityEvent event = AccessibilityEvent.obtain(eventType);
+        event.setPackageName(getContext().getPackageName());
+        event.setClassName(ColorPickerSwatch.class.getName());
+        event.setSource(this, index);
+        event.setEnabled(true);
+        event.setChecked(mColors[index] == mSelectedColor);
+        event.setContentDescription(getSwatchDescription(index));
+        parent.requestSendAccessibilityEvent(this, event);
+    }
+
+    /**
+     * Exposes the swatches as virtual views, their ids are the indices of their colors.  The
+     * children of the palette are listed in the left->right/top->bottom order.
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private class SwatchNodeProvider extends AccessibilityNodeProvider {
+
+        @Override
+        public AccessibilityNodeInfo createAccessibilityNodeInfo(int virtualViewId) {
+            if (virtualViewId == View.NO_ID) {
+                AccessibilityNodeInfo info = AccessibilityNodeInfo.obtain(
+                        ColorPickerCanvasPalette.this);
+                onInitializeAccessibilityNodeInfo(info);
+                for (int index : getVirtualViewIds()) {
+                    info.addChild(ColorPickerCanvasPalette.this, index);
+                }
+                return info;
+            }
+            if (mColors == null || mGeometry == null || virtualViewId < 0
+                    || virtualViewId >= mColors.length) {
+                return null;
+            }
+
+            AccessibilityNodeInfo info = AccessibilityNodeInfo.obtain();
+            info.setPackageName(getContext().getPackageName());
+            info.setClassName(ColorPickerSwatch.class.getName());
+            info.setSource(ColorPickerCanvasPalette.this, virtualViewId);
+            info.setParent(ColorPickerCanvasPalette.this);
+            info.setContentDescription(getSwatchDescription(virtualViewId));
+            info.setCheckable(true);
+            info.setChecked(mColors[virtualViewId] == mSelectedColor);
+            info.setEnabled(isEnabled());
+            info.setClickable(true);
+            info.addAction(AccessibilityNodeInfo.ACTION_CLICK);
+            if (mAccessibilityFocusedIndex == virtualViewId) {
+                info.setAccessibilityFocused(true);
+                info.addAction(AccessibilityNodeInfo.ACTION_CLEAR_ACCESSIBILITY_FOCUS);
+            } else {
+                info.addAction(AccessibilityNodeInfo.ACTION_ACCESSIBILITY_FOCUS);
+            }
+
+            updateGeometry();
+            setSwatchRect(virtualViewId);
+            Rect bounds = mAccessibilityRect;
+            bounds.set((int) mSwatchRect.left, (int) mSwatchRect.top,
+                    (int) mSwatchRect.right, (int) mSwatchRect.bottom);
+            info.setBoundsInParent(bounds);
+            info.setVisibleToUser(getLocalVisibleRect(mVisibleRect)
+                    && Rect.intersects(mVisibleRect, bounds));
+            getLocationOnScreen(mLocationOnScreen);
+            bounds.offset(mLocationOnScreen[0] - getScrollX(), mLocationOnScreen[1] - getScrollY());
+            info.setBoundsInScreen(bounds);
+            return info;
+        }
+
+        @Override
+        public boolean performAction(int virtualViewId, int action, Bundle arguments) {
+            if (virtualViewId == View.NO_ID) {
+                return performAccessibilityAction(action, arguments);
+            }
+            if (mColors == null || virtualViewId < 0 || virtualViewId >= mColors.length) {
+                return false;
+            }
+
+            switch (action) {
+                case AccessibilityNodeInfo.ACTION_CLICK:
+                    playSoundEffect(SoundEffectConstants.CLICK);
+                    sendEventForSwatch(virtualViewId, AccessibilityEvent.TYPE_VIEW_CLICKED);
+                    selectSwatch(virtualViewId);
+                    return true;
+                case AccessibilityNodeInfo.ACTION_ACCESSIBILITY_FOCUS:
+                    if (mAccessibilityFocusedIndex == virtualViewId) {
+                        return false;
+                    }
+                    mAccessibilityFocusedIndex = virtualViewId;
+                    invalidate();
+                    sendEventForSwatch(virtualViewId,
+                            AccessibilityEvent.TYPE_VIEW_ACCESSIBILITY_FOCUSED);
+                    return true;
+                case AccessibilityNodeInfo.ACTION_CLEAR_ACCESSIBILITY_FOCUS:
+                    if (mAccessibilityFocusedIndex != virtualViewId) {
+                        return false;
+                    }
+                    mAccessibilityFocusedIndex = -1;
+                    invalidate();
+                    sendEventForSwatch(virtualViewId,
+                            AccessibilityEvent.TYPE_VIEW_ACCESSIBILITY_FOCUS_CLEARED);
+                    return true;
+            }
+            return false;
+        }
+    }
+
+    private void setPressedIndex(int index) {
+        if (mPressedIndex != index) {
+            mPressedIndex = index;
+            invalidate();
+        }
+    }
+
+    /**
+     * The swatch drawable of {@link ColorPickerSwatch} is an opaque black circle with the color
+     * applied as {@code SRC_ATOP} filter, so translucent colors are shown on top of black.
+     */
+    private static int getOpaqueColor(int color) {
+        int alpha = Color.alpha(color);
+        if (alpha == 0xff) {
+            return color;
+        }
+        return Color.rgb(Color.red(color) * alpha / 0xff, Color.green(color) * alpha / 0xff,
+                Color.blue(color) * alpha / 0xff);
+    }
+}
@@ -20,23 +20,35 @@ import android.app.Activity;
 import android.app.AlertDialog;
 import android.app.Dialog;
 import android.app.DialogFragment;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
 import android.graphics.Color;
+import android.os.AsyncTask;
 import android.os.Bundle;
+import android.os.Process;
 import android.text.Editable;
 import android.text.TextWatcher;
+import android.util.Log;
+import android.view.Gravity;
 import android.view.KeyEvent;
 import android.view.LayoutInflater;
 import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
 import android.view.inputmethod.EditorInfo;
 import android.widget.Button;
 import android.widget.EditText;
+import android.widget.FrameLayout;
+import android.widget.ImageView;
+import android.widget.LinearLayout;
 import android.widget.ProgressBar;
 import android.widget.TextView;
 
 import com.woalk.apps.lib.colorpicker.ColorPickerSwatch.OnColorSelectedListener;
 
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.Locale;
+import java.util.concurrent.Executor;
 
 /**
  * A dialog which takes in as input an array of colors and creates a palette allowing the user to
@@ -44,9 +56,21 @@ import java.util.Locale;
  */
 public class ColorPickerDialog extends DialogFragment implements ColorPickerSwatch.OnColorSelectedListener {
 
+    private static final String TAG = "ColorPickerDialog";
+
+    /** The delay between the last change of the custom color field and updating the preview. */
+    private static final long PREVIEW_DELAY_MILLIS = 150;
+
     public static final int SIZE_LARGE = 1;
     public static final int SIZE_SMALL = 2;
 
+    /** Palette mode using a {@link ColorPickerPalette} with one view per swatch (default). */
+    public static final int PALETTE_TABLE = 0;
+    /** Palette mode using a single {@link ColorPickerCanvasPalette} drawing all swatches. */
+    public static final int PALETTE_CANVAS = 1;
+    /** Palette mode using a {@link ColorPickerVirtualPalette} which only creates visible rows. */
+    public static final int PALETTE_VIRTUAL = 2;
+
     protected AlertDialog mAlertDialog;
 
     protected static final String KEY_TITLE_ID = "title_id";
@@ -56,6 +80,27 @@ public class ColorPickerDialog extends DialogFragment implements ColorPickerSwat
     protected static final String KEY_COLUMNS = "columns";
     protected static final String KEY_SIZE = "size";
     protected static final String KEY_CUSTOM_COLOR = "allow_custom";
+    protected static final String KEY_PALETTE_MODE = "palette_mode";
+    protected static final String KEY_SNAP_TO_PALETTE = "snap_to_palette";
+    protected static final String KEY_FILTER = "filter";
+    protected static final String KEY_COLOR_NAMES = "color_names";
+    protected static final String KEY_PALETTE_RES_ID = "palette_res_id";
+    protected static final String KEY_PALETTE_KEY = "palette_key";
+    protected static final String KEY_PALETTE_NAMES_RES_ID = "palette_names_res_id";
+    protected static final String KEY_COLORS_REFERENCED = "colors_referenced";
+    protected static final String KEY_COLOR_NAMES_REFERENCED = "color_names_referenced";
+    protected static final String KEY_SNAPSHOT_CACHE = "snapshot_cache";
+    protected static final String KEY_PENDING_PROVIDER = "pending_provider";
+
+    /**
+     * The providers of dialogs which were still loading their colors when their instance state was
+     * saved, by the id in the state, so the recreated dialogs can load the colors again.  The ids
+     * contain the process id, so a state saved by another process never finds a provider.  Only
+     * used on the main thread.
+     */
+    private static final HashMap<String, PendingProvider> sPendingProviders =
+            new HashMap<String, PendingProvider>();
+    private static int sNextPendingProviderId = 1;
 
     protected int mTitleResId = R.string.color_picker_default_title;
     protected String mTitle = null;
@@ -64,12 +109,42 @@ public class ColorPickerDialog extends DialogFragment implements ColorPickerSwat
     protected int mColumns;
     protected int mSize;
     protected boolean mAllowCustomColor = false;
+    protected int mPaletteMode = PALETTE_TABLE;
+    protected boolean mSnapToPalette = false;
+    protected boolean mAllowFilter = false;
+    protected boolean mSnapshotCacheEnabled = false;
+    protected String[] mColorNames = null;
 
-    private ColorPickerPalette mPalette;
+    /** The colors of the palette reference, see {@link #setPaletteResource(int)}. */
+    private int[] mReferencedColors;
+    private String[] mReferencedNames;
+
+    private ColorPaletteView mPalette;
+    private PaletteMetricsListener mMetricsListener;
     private ProgressBar mProgress;
 
     protected ColorPickerSwatch.OnColorSelectedListener mListener;
 
+    private ColorPaletteProvider mPaletteProvider;
+    private Executor mPaletteExecutor;
+    private LoadPaletteTask mLoadPaletteTask;
+    private String mPendingProviderId;
+    private boolean mPaletteProviderLost;
+    private NearestColorIndex mNearestColorIndex;
+    private int[] mNearestColorIndexColors;
+    /** A sorted copy of {@code mSortedColorsSource}, to find exact palette colors. */
+    private int[] mSortedColors;
+    private int[] mSortedColorsSource;
+    private ImageView mPreview;
+    private ColorStateDrawable mPreviewDrawable;
+    private long mPreviewColor;
+    private boolean mCustomColorInvalid;
+    private String mFilterQuery;
+    private int[] mFilteredColors;
+    private ColorPrefixIndex mPrefixIndex;
+    private int[] mPrefixIndexColors;
+    private String[] mPrefixIndexNames;
+
     /**
      * New instance of {@link ColorPickerDialog}.
      * Do not use the constructor outside of the library.
@@ -170,6 +245,198 @@ public class ColorPickerDialog extends DialogFragment implements ColorPickerSwat
         setArguments(bundle);
     }
 
+    /**
+     * Set the kind of view used to show the palette. Must be called before the dialog is shown.
+     * @param paletteMode One of {@code PALETTE_TABLE}, {@code PALETTE_CANVAS},
+     *                    {@code PALETTE_VIRTUAL}.
+     */
+    public void setPaletteMode(int paletteMode) {
+        Bundle bundle = getArguments();
+        if (bundle == null) {
+            bundle = new Bundle();
+            setArguments(bundle);
+        }
+        bundle.putInt(KEY_PALETTE_MODE, paletteMode);
+        mPaletteMode = paletteMode;
+    }
+
+    /**
+     * Snap custom colors to the palette: while a custom color is entered, the closest palette
+     * color is marked, and it is selected instead of the custom color.  Closeness is measured in
+     * the perceptual OKLab color space, see {@link NearestColorIndex}.  Must be called before the
+     * dialog is shown.
+     * @param snapToPalette {@code true} to snap custom colors to the palette.
+     */
+    public void setSnapToPalette(boolean snapToPalette) {
+        Bundle bundle = getArguments();
+        if (bundle == null) {
+            bundle = new Bundle();
+            setArguments(bundle);
+        }
+        bundle.putBoolean(KEY_SNAP_TO_PALETTE, snapToPalette);
+        mSnapToPalette = snapToPalette;
+    }
+
+    /**
+     * Show a field to filter the palette by the beginning of the hex codes and names of the
+     * colors, see {@link #setColorNames(String[])}.  Must be called before the dialog is shown.
+     * @param allowFilter {@code true} to show the filter field.
+     */
+    public void setFilterEnabled(boolean allowFilter) {
+        Bundle bundle = getArguments();
+        if (bundle == null) {
+            bundle = new Bundle();
+            setArguments(bundle);
+        }
+        bundle.putBoolean(KEY_FILTER, allowFilter);
+        mAllowFilter = allowFilter;
+    }
+
+    /**
+     * Keep a rendered image of the palette in the {@link PaletteSnapshotCache}.  When the dialog
+     * is opened again with the same colors, columns, size, palette mode and selected color, the
+     * image is shown right away, and the palette is prepared behind it.  Must be called before the
+     * dialog is shown.
+     * @param enabled {@code true} to use the snapshot cache.
+     */
+    public void setSnapshotCacheEnabled(boolean enabled) {
+        Bundle bundle = getArguments();
+        if (bundle == null) {
+            bundle = new Bundle();
+            setArguments(bundle);
+        }
+        bundle.putBoolean(KEY_SNAPSHOT_CACHE, enabled);
+        mSnapshotCacheEnabled = enabled;
+    }
+
+    /**
+     * Set the names of the colors, which the palette can be filtered by.  Replaces the names of a
+     * palette resource.  Names set here are kept in the instance state, pass the names with the
+     * palette to {@link #setPaletteResource(int, int)} or {@link PaletteRegistry} to avoid that.
+     * @param names The names, in the same order as the colors, or {@code null}.  Names are ignored
+     *              if there are not as many names as colors.
+     */
+    public void setColorNames(String[] names) {
+        Bundle arguments = getArguments();
+        if (arguments != null) {
+            arguments.remove(KEY_PALETTE_NAMES_RES_ID);
+        }
+        mColorNames = names;
+        mFilteredColors = null;
+        refreshPalette();
+    }
+
+    /**
+     * Show the palette of an integer array resource, loaded through {@link PaletteCache} when the
+     * dialog is created.  Replaces the colors set before.  As long as the dialog shows these
+     * colors, its instance state only contains the resource id instead of all colors, which keeps
+     * the state of large palettes small.  Must be called before the dialog is shown.
+     * @param resId The resource id of the integer array.
+     */
+    public void setPaletteResource(int resId) {
+        setPaletteResource(resId, 0);
+    }
+
+    /**
+     * Show the palette of an integer array resource with the names of its colors, see
+     * {@link #setPaletteResource(int)}.  The instance state then contains neither the colors
+     * nor the names.  Must be called before the dialog is shown.
+     * @param resId The resource id of the integer array.
+     * @param namesResId The resource id of a string array with the names of the colors, see
+     *                   {@link #setColorNames(String[])}, or {@code 0}.
+     */
+    public void setPaletteResource(int resId, int namesResId) {
+        Bundle bundle = getArguments();
+        if (bundle == null) {
+            bundle = new Bundle();
+            setArguments(bundle);
+        }
+        bundle.putInt(KEY_PALETTE_RES_ID, resId);
+        bundle.putInt(KEY_PALETTE_NAMES_RES_ID, namesResId);
+        bundle.remove(KEY_PALETTE_KEY);
+        if (namesResId != 0) {
+            // Loaded from the resource when the dialog is created.
+            mColorNames = null;
+        }
+    }
+
+    /**
+     * Show a palette of the {@link PaletteRegistry}.  Replaces the colors set before.  As long as
+     * the dialog shows these colors, its instance state only contains the key instead of all
+     * colors, which keeps the state of large palettes small.  The palette must still be
+     * registered when the dialog is recreated, e.g. after the process was restarted.  Must be
+     * called before the dialog is shown.  The names registered with the palette are shown as
+     * well.
+     * @param key The key of the registered palette.
+     */
+    public void setPaletteKey(String key) {
+        Bundle bundle = getArguments();
+        if (bundle == null) {
+            bundle = new Bundle();
+            setArguments(bundle);
+        }
+        int[] colors = PaletteRegistry.get(key);
+        if (colors != null) {
+            // Clears the previous palette reference.
+            setColors(colors);
+            setColorNames(PaletteRegistry.getNames(key));
+        }
+        bundle.putString(KEY_PALETTE_KEY, key);
+        bundle.remove(KEY_PALETTE_RES_ID);
+        bundle.remove(KEY_PALETTE_NAMES_RES_ID);
+    }
+
+    /**
+     * Returns the colors of the palette reference in the arguments, or {@code null}.
+     */
+    private int[] loadReferencedColors() {
+        Bundle arguments = getArguments();
+        if (arguments == null) {
+            return null;
+        }
+        int resId = arguments.getInt(KEY_PALETTE_RES_ID);
+        if (resId != 0) {
+            return PaletteCache.getColors(getResources(), resId);
+        }
+        String key = arguments.getString(KEY_PALETTE_KEY);
+        if (key != null) {
+            int[] colors = PaletteRegistry.get(key);
+            if (colors == null) {
+                Log.w(TAG, "The palette " + key + " is not registered.");
+            }
+            return colors;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the color names of the palette reference in the arguments, or {@code null}.
+     */
+    private String[] loadReferencedNames() {
+        Bundle arguments = getArguments();
+        if (arguments == null) {
+            return null;
+        }
+        int namesResId = arguments.getInt(KEY_PALETTE_NAMES_RES_ID);
+        if (namesResId != 0) {
+            return getResources().getStringArray(namesResId);
+        }
+        String key = arguments.getString(KEY_PALETTE_KEY);
+        return key != null ? PaletteRegistry.getNames(key) : null;
+    }
+
+    /**
+     * Removes the palette reference from the arguments, when other colors are shown.
+     */
+    private void clearPaletteReference() {
+        Bundle arguments = getArguments();
+        if (arguments != null) {
+            arguments.remove(KEY_PALETTE_RES_ID);
+            arguments.remove(KEY_PALETTE_NAMES_RES_ID);
+            arguments.remove(KEY_PALETTE_KEY);
+        }
+    }
+
     /**
      * Set the {@link OnColorSelectedListener}, called when the user selects a color in the dialog.
      * @param listener The listener to set.
@@ -178,6 +445,51 @@ public class ColorPickerDialog extends DialogFragment implements ColorPickerSwat
         mListener = listener;
     }
 
+    /**
+     * Set a listener for the timings of the dialog and its palette, e.g. to report them to
+     * telemetry.  Without a listener, no timings are taken.  Like the
+     * {@link OnColorSelectedListener}, the listener is not kept when the dialog is recreated.
+     * @param listener The listener, or {@code null}.
+     */
+    public void setMetricsListener(PaletteMetricsListener listener) {
+        mMetricsListener = listener;
+        if (mPalette != null) {
+            mPalette.setMetricsListener(listener);
+        }
+    }
+
+    /**
+     * Set a {@link ColorPaletteProvider} which loads the colors of the dialog on a background
+     * thread, see {@link #setPaletteProvider(ColorPaletteProvider, Executor)}.
+     * @param provider The provider to load the colors from.
+     */
+    public void setPaletteProvider(ColorPaletteProvider provider) {
+        setPaletteProvider(provider, AsyncTask.THREAD_POOL_EXECUTOR);
+    }
+
+    /**
+     * Set a {@link ColorPaletteProvider} which loads the colors of the dialog.  The colors are
+     * loaded as soon as the dialog is created, or right away if it already is, and the
+     * {@link ProgressBar} is shown until they are loaded.  Loading is cancelled when the dialog is
+     * destroyed, a result arriving later is dropped.
+     * <br/><br/>
+     * If the dialog is recreated after a configuration change while the colors are still loading,
+     * the recreated dialog loads them again with the same provider and executor.  If the provider
+     * is lost, e.g. because the process was restarted, an empty palette is shown instead.  Colors
+     * which were already loaded are kept like colors set with {@link #setColors(int[])}.
+     * @param provider The provider to load the colors from.
+     * @param executor The executor to call {@link ColorPaletteProvider#loadColors()} on.
+     */
+    public void setPaletteProvider(ColorPaletteProvider provider, Executor executor) {
+        cancelLoadPalette();
+        mPaletteProvider = provider;
+        mPaletteExecutor = executor;
+        mPaletteProviderLost = false;
+        if (provider != null && isAdded()) {
+            loadPalette();
+        }
+    }
+
     @Override
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -188,24 +500,117 @@ public class ColorPickerDialog extends DialogFragment implements ColorPickerSwat
             mColumns = getArguments().getInt(KEY_COLUMNS);
             mSize = getArguments().getInt(KEY_SIZE);
             mAllowCustomColor = getArguments().getBoolean(KEY_CUSTOM_COLOR);
+            mPaletteMode = getArguments().getInt(KEY_PALETTE_MODE, PALETTE_TABLE);
+            mSnapToPalette = getArguments().getBoolean(KEY_SNAP_TO_PALETTE);
+            mAllowFilter = getArguments().getBoolean(KEY_FILTER);
+            mSnapshotCacheEnabled = getArguments().getBoolean(KEY_SNAPSHOT_CACHE);
         }
 
+        mReferencedColors = loadReferencedColors();
+        mReferencedNames = loadReferencedNames();
         if (savedInstanceState != null) {
-            mColors = savedInstanceState.getIntArray(KEY_COLORS);
-            mSelectedColor = (Integer) savedInstanceState.getSerializable(KEY_SELECTED_COLOR);
+            if (savedInstanceState.getBoolean(KEY_COLORS_REFERENCED)) {
+                mColors = mReferencedColors;
+            } else {
+                mColors = savedInstanceState.getIntArray(KEY_COLORS);
+            }
+            mSelectedColor = savedInstanceState.getInt(KEY_SELECTED_COLOR);
+            if (savedInstanceState.getBoolean(KEY_COLOR_NAMES_REFERENCED)) {
+                mColorNames = mReferencedNames;
+            } else {
+                mColorNames = savedInstanceState.getStringArray(KEY_COLOR_NAMES);
+            }
+            restorePendingProvider(savedInstanceState.getString(KEY_PENDING_PROVIDER));
+        } else {
+            if (mReferencedColors != null) {
+                mColors = mReferencedColors;
+            }
+            if (mReferencedNames != null && mColorNames == null) {
+                mColorNames = mReferencedNames;
+            }
+        }
+
+        if (mPaletteProvider != null && mLoadPaletteTask == null) {
+            loadPalette();
         }
     }
 
+    /**
+     * Takes over the provider of the dialog this one was recreated from, if it was still loading
+     * the colors.
+     */
+    private void restorePendingProvider(String id) {
+        if (id == null) {
+            return;
+        }
+        PendingProvider pending = sPendingProviders.remove(id);
+        if (mPaletteProvider != null) {
+            return;
+        }
+        if (pending != null) {
+            mPaletteProvider = pending.provider;
+            mPaletteExecutor = pending.executor;
+        } else {
+            Log.w(TAG, "The palette provider was lost before the colors were loaded.");
+            mPaletteProviderLost = true;
+        }
+    }
+
+    @Override
+    public void onDestroy() {
+        cancelLoadPalette();
+        Activity activity = getActivity();
+        if (mPendingProviderId != null
+                && (activity == null || !activity.isChangingConfigurations())) {
+            // This dialog is not recreated right away, don't keep the provider around.
+            sPendingProviders.remove(mPendingProviderId);
+        }
+        super.onDestroy();
+    }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        releasePreview();
+    }
+
+    /**
+     * Gives the drawable of the preview back to the {@link SwatchDrawableCache}, as
+     * {@link ColorPickerSwatch} does when it is detached, and forgets the preview.
+     */
+    private void releasePreview() {
+        if (mPreview != null) {
+            mPreview.setImageDrawable(null);
+            mPreview = null;
+        }
+        SwatchDrawableCache.recycle(mPreviewDrawable);
+        mPreviewDrawable = null;
+    }
+
     @Override
     public Dialog onCreateDialog(Bundle savedInstanceState) {
         final Activity activity = getActivity();
 
+        long start = mMetricsListener != null ? System.nanoTime() : 0;
         View view = LayoutInflater.from(getActivity()).inflate(R.layout.color_picker_dialog, null);
+        if (mMetricsListener != null) {
+            mMetricsListener.onDialogInflated(System.nanoTime() - start);
+        }
         mProgress = (ProgressBar) view.findViewById(android.R.id.progress);
-        mPalette = (ColorPickerPalette) view.findViewById(R.id.color_picker);
+        // The new filter field is empty, a reused dialog shows all colors again.  A restored
+        // field filters the palette again when its text is restored.
+        mFilterQuery = null;
+        mFilteredColors = null;
+        mPalette = createPaletteView(view);
         mPalette.init(mSize, mColumns, this);
+        mPalette.setMetricsListener(mMetricsListener);
 
-        if (mColors != null) {
+        if (mSnapshotCacheEnabled) {
+            PaletteSnapshotCache.register(activity);
+        }
+        if (mLoadPaletteTask == null
+                && (mColors != null || mPaletteProvider != null || mPaletteProviderLost)
+                && !showPaletteSnapshot()) {
             showPaletteView();
         }
 
@@ -217,29 +622,64 @@ public class ColorPickerDialog extends DialogFragment implements ColorPickerSwat
         View customColorContainer = view.findViewById(android.R.id.custom);
         final EditText customColorField = (EditText) view.findViewById(android.R.id.edit);
         Button customColorOKButton = (Button) view.findViewById(android.R.id.button1);
+        releasePreview();
+        mPreview = (ImageView) view.findViewById(R.id.color_picker_preview);
+        mPreviewColor = ColorParser.INVALID_COLOR;
+        mCustomColorInvalid = false;
 
         if (mAllowCustomColor) {
             customColorContainer.setVisibility(View.VISIBLE);
         }
 
+        if (mAllowFilter) {
+            EditText filterField = (EditText) view.findViewById(R.id.color_picker_filter);
+            filterField.setVisibility(View.VISIBLE);
+            filterField.addTextChangedListener(new TextWatcher() {
+                @Override
+                public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+
+                }
+
+                @Override
+                public void onTextChanged(CharSequence s, int start, int before, int count) {
+
+                }
+
+                @Override
+                public void afterTextChanged(Editable s) {
+                    mFilterQuery = s.toString();
+                    mFilteredColors = null;
+                    refreshPalette();
+                }
+            });
+        }
+
         customColorOKButton.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View v) {
-                String text = customColorField.getText().toString();
-                if (text.equals("")) {
+                Editable text = customColorField.getText();
+                if (text.length() == 0) {
                     dismiss();
                     return;
-                } else if (!text.startsWith("#") && text.matches("^[0-9A-Fa-f]+$")) {
-                    text = "#" + customColorField.getText();
-                    customColorField.setText(text);
+                } else if (text.charAt(0) != '#' && isHexDigits(text)) {
+                    text.insert(0, "#");
                 }
-                try {
-                    onColorSelected(parseColor(text));
-                } catch (Throwable e) {
+                long color = ColorParser.tryParseColor(text);
+                if (color != ColorParser.INVALID_COLOR) {
+                    onColorSelected(mSnapToPalette ? findNearestColor((int) color) : (int) color);
+                } else {
                     customColorField.setTextColor(Color.RED);
+                    mCustomColorInvalid = true;
                 }
             }
         });
+        final int textColor = getResources().getColor(android.R.color.primary_text_light);
+        final Runnable updatePreview = new Runnable() {
+            @Override
+            public void run() {
+                updatePreview(customColorField.getText());
+            }
+        };
         customColorField.addTextChangedListener(new TextWatcher() {
             @Override
             public void beforeTextChanged(CharSequence s, int start, int count, int after) {
@@ -253,14 +693,69 @@ public class ColorPickerDialog extends DialogFragment implements ColorPickerSwat
 
             @Override
             public void afterTextChanged(Editable s) {
-                customColorField.setTextColor(getResources().getColor(android.R.color
-                        .primary_text_light));
+                if (mCustomColorInvalid) {
+                    customColorField.setTextColor(textColor);
+                    mCustomColorInvalid = false;
+                }
+                customColorField.removeCallbacks(updatePreview);
+                customColorField.postDelayed(updatePreview, PREVIEW_DELAY_MILLIS);
             }
         });
 
         return mAlertDialog;
     }
 
+    /**
+     * Returns the palette view for the current palette mode. The {@link ColorPickerPalette} of the
+     * dialog layout is replaced if another mode was requested.
+     */
+    private ColorPaletteView createPaletteView(View dialogView) {
+        ColorPickerPalette palette =
+                (ColorPickerPalette) dialogView.findViewById(R.id.color_picker);
+        switch (mPaletteMode) {
+            case PALETTE_CANVAS:
+                ColorPickerCanvasPalette canvasPalette =
+                        new ColorPickerCanvasPalette(getActivity());
+                replacePaletteView(palette, canvasPalette);
+                return canvasPalette;
+            case PALETTE_VIRTUAL:
+                ColorPickerVirtualPalette virtualPalette =
+                        new ColorPickerVirtualPalette(getActivity());
+                replacePaletteView(palette, virtualPalette);
+                removeScrollView((View) virtualPalette.getParent());
+                return virtualPalette;
+            default:
+                return palette;
+        }
+    }
+
+    private static void replacePaletteView(View oldView, View newView) {
+        ViewGroup parent = (ViewGroup) oldView.getParent();
+        int index = parent.indexOfChild(oldView);
+        parent.removeViewAt(index);
+        newView.setId(oldView.getId());
+        newView.setVisibility(oldView.getVisibility());
+        parent.addView(newView, index, oldView.getLayoutParams());
+    }
+
+    /**
+     * Moves the palette container out of its {@link android.widget.ScrollView}, for palettes which
+     * scroll by themselves. The container takes the remaining height of the dialog layout, so the
+     * custom color field stays visible.
+     */
+    private static void removeScrollView(View container) {
+        ViewGroup scrollView = (ViewGroup) container.getParent();
+        ViewGroup root = (ViewGroup) scrollView.getParent();
+        int index = root.indexOfChild(scrollView);
+        scrollView.removeView(container);
+        root.removeViewAt(index);
+
+        LinearLayout.LayoutParams params = new LinearLayout.LayoutParams(
+                ViewGroup.LayoutParams.WRAP_CONTENT, 0, 1f);
+        params.gravity = Gravity.CENTER_HORIZONTAL;
+        root.addView(container, index, params);
+    }
+
     @Override
     public void onColorSelected(int color) {
         if (mListener != null) {
@@ -276,7 +771,7 @@ public class ColorPickerDialog extends DialogFragment implements ColorPickerSwat
         if (color != mSelectedColor) {
             mSelectedColor = color;
             // Redraw palette to show checkmark on newly selected color before dismissing.
-            mPalette.drawPalette(mColors, mSelectedColor);
+            mPalette.drawPalette(getShownColors(), mSelectedColor);
         }
 
         dismiss();
@@ -291,9 +786,89 @@ public class ColorPickerDialog extends DialogFragment implements ColorPickerSwat
             mProgress.setVisibility(View.GONE);
             refreshPalette();
             mPalette.setVisibility(View.VISIBLE);
+            if (mSnapshotCacheEnabled && mColors != null
+                    && PaletteSnapshotCache.get(getSnapshotKey()) == null) {
+                savePaletteSnapshotOnDraw();
+            }
         }
     }
 
+    private String getSnapshotKey() {
+        return PaletteSnapshotCache.getKey(mColors, mColumns, mSize, mPaletteMode,
+                getResources().getDisplayMetrics().densityDpi, mSelectedColor);
+    }
+
+    /**
+     * Shows the cached image of the palette in its place, if there is one, and shows the palette
+     * in the next frame, which is prepared behind the image.
+     * @return {@code true} if the image is shown.
+     */
+    private boolean showPaletteSnapshot() {
+        if (!mSnapshotCacheEnabled || mColors == null) {
+            return false;
+        }
+        Bitmap snapshot = PaletteSnapshotCache.get(getSnapshotKey());
+        if (snapshot == null) {
+            return false;
+        }
+
+        final View palette = (View) mPalette;
+        final ImageView snapshotView = new ImageView(getActivity());
+        snapshotView.setImageBitmap(snapshot);
+        ((ViewGroup) palette.getParent()).addView(snapshotView, new FrameLayout.LayoutParams(
+                FrameLayout.LayoutParams.WRAP_CONTENT, FrameLayout.LayoutParams.WRAP_CONTENT,
+                Gravity.CENTER));
+        mProgress.setVisibility(View.GONE);
+        palette.post(new Runnable() {
+            @Override
+            public void run() {
+                ViewGroup parent = (ViewGroup) snapshotView.getParent();
+                if (parent != null) {
+                    parent.removeView(snapshotView);
+                }
+                if (mPalette == palette && mLoadPaletteTask == null) {
+                    showPaletteView();
+                }
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Saves an image of the palette to the {@link PaletteSnapshotCache} right before it is drawn
+     * the next time, when it is laid out.
+     */
+    private void savePaletteSnapshotOnDraw() {
+        final View palette = (View) mPalette;
+        palette.getViewTreeObserver().addOnPreDrawListener(
+                new ViewTreeObserver.OnPreDrawListener() {
+                    @Override
+                    public boolean onPreDraw() {
+                        ViewTreeObserver observer = palette.getViewTreeObserver();
+                        if (observer.isAlive()) {
+                            observer.removeOnPreDrawListener(this);
+                        }
+                        savePaletteSnapshot(palette);
+                        return true;
+                    }
+                });
+    }
+
+    private void savePaletteSnapshot(View palette) {
+        int width = palette.getWidth();
+        int height = palette.getHeight();
+        // Only the palette as it is first shown is saved, not filtered or marked by the preview.
+        if (mPalette != palette || mColors == null || getShownColors() != mColors
+                || mPreviewColor != ColorParser.INVALID_COLOR
+                || palette.getVisibility() != View.VISIBLE || width == 0 || height == 0
+                || !PaletteSnapshotCache.fits(4L * width * height)) {
+            return;
+        }
+        Bitmap snapshot = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        palette.draw(new Canvas(snapshot));
+        PaletteSnapshotCache.put(getSnapshotKey(), snapshot);
+    }
+
     /**
      * Show a spinning {@link ProgressBar} to indicate a loading condition.
      * Hide the {@code ProgressBar} again with {@link #showPaletteView()}.
@@ -305,12 +880,41 @@ public class ColorPickerDialog extends DialogFragment implements ColorPickerSwat
         }
     }
 
+    private void loadPalette() {
+        mLoadPaletteTask = new LoadPaletteTask(this, mPaletteProvider);
+        mLoadPaletteTask.executeOnExecutor(mPaletteExecutor);
+        showProgressBarView();
+    }
+
+    private void cancelLoadPalette() {
+        if (mLoadPaletteTask != null) {
+            mLoadPaletteTask.abandon();
+            mLoadPaletteTask = null;
+        }
+    }
+
+    private void onPaletteLoaded(int[] colors) {
+        mLoadPaletteTask = null;
+        if (mPendingProviderId != null) {
+            sPendingProviders.remove(mPendingProviderId);
+        }
+        if (colors != null) {
+            mColors = colors;
+            // Kept like colors set with setColors, a reused dialog does not load them again.
+            mPaletteProvider = null;
+            mPaletteExecutor = null;
+        }
+        showPaletteView();
+    }
+
     /**
-     * Change the colors displayed in the dialog.
+     * Change the colors displayed in the dialog.  Replaces a palette set with
+     * {@link #setPaletteResource(int)} or {@link #setPaletteKey(String)}.
      * @param colors A color array, containing all colors that should be selectable in this dialog.
      * @param selectedColor The currently selected color (or the default color).
      */
     public void setColors(int[] colors, int selectedColor) {
+        clearPaletteReference();
         if (mColors != colors || mSelectedColor != selectedColor) {
             mColors = colors;
             mSelectedColor = selectedColor;
@@ -319,10 +923,12 @@ public class ColorPickerDialog extends DialogFragment implements ColorPickerSwat
     }
 
     /**
-     * Change the colors displayed in the dialog.
+     * Change the colors displayed in the dialog.  Replaces a palette set with
+     * {@link #setPaletteResource(int)} or {@link #setPaletteKey(String)}.
      * @param colors A color array, containing all colors that should be selectable in this dialog.
      */
     public void setColors(int[] colors) {
+        clearPaletteReference();
         if (mColors != colors) {
             mColors = colors;
             refreshPalette();
@@ -340,12 +946,111 @@ public class ColorPickerDialog extends DialogFragment implements ColorPickerSwat
         }
     }
 
+    /**
+     * Shows the color of the custom color field in the preview, and marks it in the palette
+     * instead of the selected color if the palette contains exactly this color.  Otherwise, when
+     * snapping to the palette, the closest palette color is marked.  Nothing is redrawn unless
+     * the parsed color changed.
+     */
+    private void updatePreview(CharSequence text) {
+        if (mPreview == null) {
+            // The dialog was torn down before the delayed update ran.
+            return;
+        }
+        long color;
+        if (text.length() > 0 && text.charAt(0) != '#' && isHexDigits(text)) {
+            color = ColorParser.tryParseHexColor(text, 0);
+        } else {
+            color = ColorParser.tryParseColor(text);
+        }
+        if (color == mPreviewColor) {
+            return;
+        }
+        mPreviewColor = color;
+
+        if (color == ColorParser.INVALID_COLOR) {
+            mPreview.setVisibility(View.INVISIBLE);
+            refreshPalette();
+            return;
+        }
+        if (mPreviewDrawable == null) {
+            mPreviewDrawable = SwatchDrawableCache.obtain(getResources(), (int) color);
+            mPreview.setImageDrawable(mPreviewDrawable);
+        } else {
+            mPreviewDrawable.setColor((int) color);
+        }
+        mPreview.setVisibility(View.VISIBLE);
+
+        if (mPalette == null || mColors == null) {
+            return;
+        }
+        if (containsColor((int) color)) {
+            mPalette.drawPalette(getShownColors(), (int) color);
+        } else if (mSnapToPalette) {
+            mPalette.drawPalette(getShownColors(), findNearestColor((int) color));
+        } else {
+            refreshPalette();
+        }
+    }
+
+    /**
+     * Returns whether the palette contains exactly {@code color}, including its alpha.
+     */
+    private boolean containsColor(int color) {
+        if (mSortedColorsSource != mColors) {
+            mSortedColors = mColors.clone();
+            Arrays.sort(mSortedColors);
+            mSortedColorsSource = mColors;
+        }
+        return Arrays.binarySearch(mSortedColors, color) >= 0;
+    }
+
+    /**
+     * Returns the palette color closest to {@code color}, or {@code color} if there is no palette.
+     */
+    private int findNearestColor(int color) {
+        if (mColors == null || mColors.length == 0) {
+            return color;
+        }
+        if (mNearestColorIndexColors != mColors) {
+            mNearestColorIndex = new NearestColorIndex(mColors);
+            mNearestColorIndexColors = mColors;
+        }
+        return mColors[mNearestColorIndex.nearest(color)];
+    }
+
     private void refreshPalette() {
         if (mPalette != null && mColors != null) {
-            mPalette.drawPalette(mColors, mSelectedColor);
+            mPalette.drawPalette(getShownColors(), mSelectedColor);
         }
     }
 
+    /**
+     * Returns the colors matching the filter field, or all colors if it is empty.
+     */
+    private int[] getShownColors() {
+        if (mColors == null || mFilterQuery == null || mFilterQuery.length() == 0) {
+            return mColors;
+        }
+
+        String[] names = mColorNames != null && mColorNames.length == mColors.length
+                ? mColorNames : null;
+        if (mPrefixIndexColors != mColors || mPrefixIndexNames != names) {
+            mPrefixIndex = new ColorPrefixIndex(mColors, names);
+            mPrefixIndexColors = mColors;
+            mPrefixIndexNames = names;
+            mFilteredColors = null;
+        }
+        if (mFilteredColors == null) {
+            int[] indices = mPrefixIndex.filter(mFilterQuery);
+            mFilteredColors = new int[indices.length];
+            for (int i = 0; i < indices.length; i++) {
+                mFilteredColors[i] = mColors[indices[i]];
+            }
+        }
+        return mFilteredColors;
+    }
+
     /**
      * Get the colors displayed in this dialog.
      * @return A color array, containing all colors that are selectable in this dialog.
@@ -365,8 +1070,92 @@ public class ColorPickerDialog extends DialogFragment implements ColorPickerSwat
     @Override
     public void onSaveInstanceState(Bundle outState) {
         super.onSaveInstanceState(outState);
-        outState.putIntArray(KEY_COLORS, mColors);
-        outState.putSerializable(KEY_SELECTED_COLOR, mSelectedColor);
+        if (mColors != null && mColors == mReferencedColors) {
+            // Restored from the palette reference in the arguments.
+            outState.putBoolean(KEY_COLORS_REFERENCED, true);
+        } else {
+            outState.putIntArray(KEY_COLORS, mColors);
+        }
+        outState.putInt(KEY_SELECTED_COLOR, mSelectedColor);
+        if (mColorNames != null && mColorNames == mReferencedNames) {
+            outState.putBoolean(KEY_COLOR_NAMES_REFERENCED, true);
+        } else {
+            outState.putStringArray(KEY_COLOR_NAMES, mColorNames);
+        }
+        if (mLoadPaletteTask != null) {
+            if (mPendingProviderId == null) {
+                mPendingProviderId = Process.myPid() + ":" + sNextPendingProviderId++;
+            }
+            sPendingProviders.put(mPendingProviderId,
+                    new PendingProvider(mPaletteProvider, mPaletteExecutor));
+            outState.putString(KEY_PENDING_PROVIDER, mPendingProviderId);
+        }
+    }
+
+    /**
+     * A provider whose dialog is recreated before the colors were loaded.
+     */
+    private static class PendingProvider {
+
+        final ColorPaletteProvider provider;
+        final Executor executor;
+
+        PendingProvider(ColorPaletteProvider provider, Executor executor) {
+            this.provider = provider;
+            this.executor = executor;
+        }
+    }
+
+    /**
+     * Calls the {@link ColorPaletteProvider} on a background thread and passes the colors to the
+     * dialog, unless it was abandoned in the meantime.
+     */
+    private static class LoadPaletteTask extends AsyncTask<Void, Void, int[]> {
+
+        private final ColorPaletteProvider mProvider;
+        private ColorPickerDialog mDialog;
+
+        public LoadPaletteTask(ColorPickerDialog dialog, ColorPaletteProvider provider) {
+            mDialog = dialog;
+            mProvider = provider;
+        }
+
+        /**
+         * Interrupts loading and drops the result.  Must be called on the main thread.
+         */
+        public void abandon() {
+            mDialog = null;
+            cancel(true);
+        }
+
+        @Override
+        protected int[] doInBackground(Void... params) {
+            try {
+                return mProvider.loadColors();
+            } catch (Exception e) {
+                if (!isCancelled()) {
+                    Log.w(TAG, "Could not load the colors of the palette.", e);
+                }
+                return null;
+            }
+        }
+
+        @Override
+        protected void onPostExecute(int[] colors) {
+            if (mDialog != null) {
+                mDialog.onPaletteLoaded(colors);
+            }
+        }
+    }
+
+    private static boolean isHexDigits(CharSequence text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f') && (c < 'A' || c > 'F')) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
@@ -380,100 +1169,14 @@ public class ColorPickerDialog extends DialogFragment implements ColorPickerSwat
      * <li>{@code #ARGB}</li>
      * <li>{@code #RRGGBB}</li>
      * <li>{@code #AARRGGBB}</li>
-     * <li>One of the color names
-     * 'red', 'blue', 'green', 'black', 'white', 'gray', 'cyan', 'magenta',
-     * 'yellow', 'lightgray', 'darkgray', 'grey', 'lightgrey', 'darkgrey',
-     * 'aqua', 'fuchsia', 'lime', 'maroon', 'navy', 'olive', 'purple',
-     * 'silver', 'teal'</li>
+     * <li>One of the CSS color names, see {@link ColorParser}</li>
      *
      * @param colorString The color string in one of the above formats.
      * @return The requested color int {@code (0xAARRGGBB)}.
      * @throws IllegalArgumentException When the color string provided is invalid.
+     * @see ColorParser#tryParseColor(CharSequence) to parse without exceptions.
      */
     public static int parseColor(String colorString) throws IllegalArgumentException {
-        if (colorString.charAt(0) == '#') {
-            String colorStr = colorString.substring(1);
-            String s_a; String s_r; String s_g; String s_b;
-            int a; int r; int g; int b;
-            switch (colorStr.length()) {
-                case 3:
-                    s_r = colorStr.substring(0, 1); // each digit is one color (#RGB)
-                    s_g = colorStr.substring(1, 2);
-                    s_b = colorStr.substring(2, 3);
-                    a = 0xff; // fixed alpha full 255 (opaque)
-                    r = Integer.parseInt(s_r + s_r, 16); // each digit represents the number twice
-                    g = Integer.parseInt(s_g + s_g, 16); // (#123 == #112233)
-                    b = Integer.parseInt(s_b + s_b, 16);
-                    break;
-                case 4:
-                    s_a = colorStr.substring(0, 1); // each digit is one color or alpha (#ARGB)
-                    s_r = colorStr.substring(1, 2);
-                    s_g = colorStr.substring(2, 3);
-                    s_b = colorStr.substring(3, 4);
-                    a = Integer.parseInt(s_a + s_a, 16); // each digit represents the number twice
-                    r = Integer.parseInt(s_r + s_r, 16); // (#1234 == #11223344)
-                    g = Integer.parseInt(s_g + s_g, 16);
-                    b = Integer.parseInt(s_b + s_b, 16);
-                    break;
-                case 6:
-                    s_r = colorStr.substring(0, 2); // full color notation without alpha (#RRGGBB)
-                    s_g = colorStr.substring(2, 4);
-                    s_b = colorStr.substring(4, 6);
-                    a = 0xff; // fixed alpha full 255 (opaque)
-                    r = Integer.parseInt(s_r, 16);
-                    g = Integer.parseInt(s_g, 16);
-                    b = Integer.parseInt(s_b, 16);
-                    break;
-                case 8:
-                    s_a = colorStr.substring(0, 2); // full color notation with alpha (#AARRGGBB)
-                    s_r = colorStr.substring(2, 4);
-                    s_g = colorStr.substring(4, 6);
-                    s_b = colorStr.substring(6, 8);
-                    a = Integer.parseInt(s_a, 16);
-                    r = Integer.parseInt(s_r, 16);
-                    g = Integer.parseInt(s_g, 16);
-                    b = Integer.parseInt(s_b, 16);
-                    break;
-                default:
-                    throw new IllegalArgumentException("Unknown color");
-            }
-            return Color.argb(a, r, g, b); // Return color int of a, r, g, b (last parse by system)
-        } else {
-            Integer color = sColorNameMap.get(colorString.toLowerCase(Locale.ROOT));
-            if (color != null) {
-                return color;
-            }
-        }
-        throw new IllegalArgumentException("Unknown color");
-    }
-
-    /** A color name list for possible parse-by-name in {@link #parseColor(String)}. */
-    private static final HashMap<String, Integer> sColorNameMap;
-    static {
-        sColorNameMap = new HashMap<String, Integer>();
-        sColorNameMap.put("black", Color.BLACK);
-        sColorNameMap.put("darkgray", Color.DKGRAY);
-        sColorNameMap.put("gray", Color.GRAY);
-        sColorNameMap.put("lightgray", Color.LTGRAY);
-        sColorNameMap.put("white", Color.WHITE);
-        sColorNameMap.put("red", Color.RED);
-        sColorNameMap.put("green", Color.GREEN);
-        sColorNameMap.put("blue", Color.BLUE);
-        sColorNameMap.put("yellow", Color.YELLOW);
-        sColorNameMap.put("cyan", Color.CYAN);
-        sColorNameMap.put("magenta", Color.MAGENTA);
-        sColorNameMap.put("aqua", 0xFF00FFFF);
-        sColorNameMap.put("fuchsia", 0xFFFF00FF);
-        sColorNameMap.put("darkgrey", Color.DKGRAY);
-        sColorNameMap.put("grey", Color.GRAY);
-        sColorNameMap.put("lightgrey", Color.LTGRAY);
-        sColorNameMap.put("lime", 0xFF00FF00);
-        sColorNameMap.put("maroon", 0xFF800000);
-        sColorNameMap.put("navy", 0xFF000080);
-        sColorNameMap.put("olive", 0xFF808000);
-        sColorNameMap.put("purple", 0xFF800080);
-        sColorNameMap.put("silver", 0xFFC0C0C0);
-        sColorNameMap.put("teal", 0xFF008080);
-
+        return ColorParser.parseColor(colorString);
     }
 }
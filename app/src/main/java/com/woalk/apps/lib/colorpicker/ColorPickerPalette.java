@@ -18,7 +18,9 @@ package com.woalk.apps.lib.colorpicker;
 
 import android.content.Context;
 import android.content.res.Resources;
+import android.graphics.Canvas;
 import android.util.AttributeSet;
+import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ImageView;
@@ -27,20 +29,42 @@ import android.widget.TableRow;
 
 import com.woalk.apps.lib.colorpicker.ColorPickerSwatch.OnColorSelectedListener;
 
+import java.util.Arrays;
+
 /**
  * A color picker custom view which creates an grid of color squares.  The number of squares per
  * row (and the padding between the squares) is determined by the user.
  */
-public class ColorPickerPalette extends TableLayout {
+public class ColorPickerPalette extends TableLayout implements ColorPaletteView {
 
     public OnColorSelectedListener mOnColorSelectedListener;
 
-    private String mDescription;
-    private String mDescriptionSelected;
+    /**
+     * The geometry of the swatches.  {@link TableRow}s place their children from the end in
+     * right-to-left layouts by themselves, so its columns are the positions of the children.
+     */
+    private PaletteGeometry mGeometry;
+
+    /** A copy of the colors shown by the swatches, to find out what changed on redraw. */
+    private int[] mDrawnColors;
+    private int mDrawnSelectedColor;
+
+    private PaletteMetrics mMetrics;
+    private int mSwatchesCreated;
+    private int mBlankSpacesCreated;
 
-    private int mSwatchLength;
-    private int mMarginSize;
-    private int mNumColumns;
+    /** Passes the colors selected by the swatches on, after taking the tap time. */
+    private final OnColorSelectedListener mSwatchListener = new OnColorSelectedListener() {
+        @Override
+        public void onColorSelected(int color) {
+            if (mMetrics != null) {
+                mMetrics.onColorSelected();
+            }
+            if (mOnColorSelectedListener != null) {
+                mOnColorSelectedListener.onColorSelected(color);
+            }
+        }
+    };
 
     public ColorPickerPalette(Context context, AttributeSet attrs) {
         super(context, attrs);
@@ -54,20 +78,28 @@ public class ColorPickerPalette extends TableLayout {
      * Initialize the size, columns, and listener.  Size should be a pre-defined size (SIZE_LARGE
      * or SIZE_SMALL) from ColorPickerDialogFragment.
      */
+    @Override
     public void init(int size, int columns, OnColorSelectedListener listener) {
-        mNumColumns = columns;
         Resources res = getResources();
         if (size == ColorPickerDialog.SIZE_LARGE) {
-            mSwatchLength = res.getDimensionPixelSize(R.dimen.color_swatch_large);
-            mMarginSize = res.getDimensionPixelSize(R.dimen.color_swatch_margins_large);
+            mGeometry = new PaletteGeometry(columns,
+                    res.getDimensionPixelSize(R.dimen.color_swatch_large),
+                    res.getDimensionPixelSize(R.dimen.color_swatch_margins_large));
         } else {
-            mSwatchLength = res.getDimensionPixelSize(R.dimen.color_swatch_small);
-            mMarginSize = res.getDimensionPixelSize(R.dimen.color_swatch_margins_small);
+            mGeometry = new PaletteGeometry(columns,
+                    res.getDimensionPixelSize(R.dimen.color_swatch_small),
+                    res.getDimensionPixelSize(R.dimen.color_swatch_margins_small));
         }
         mOnColorSelectedListener = listener;
 
-        mDescription = res.getString(R.string.color_swatch_description);
-        mDescriptionSelected = res.getString(R.string.color_swatch_description_selected);
+        // Swatches which were created for another size or number of columns can't be reused.
+        removeAllViews();
+        mDrawnColors = null;
+    }
+
+    @Override
+    public void setMetricsListener(PaletteMetricsListener listener) {
+        mMetrics = listener != null ? new PaletteMetrics(listener) : null;
     }
 
     private TableRow createTableRow() {
@@ -79,84 +111,158 @@ public class ColorPickerPalette extends TableLayout {
     }
 
     /**
-     * Adds swatches to table in a serpentine format.
+     * Adds swatches to table in a serpentine format.  If the palette was drawn before, only the
+     * swatches which changed are updated: a new selection only flips the checkmarks of the old and
+     * the new selected color, changed colors are set on the existing swatches, and swatches are
+     * only created or removed if the number of colors changed.
      */
+    @Override
     public void drawPalette(int[] colors, int selectedColor) {
         if (colors == null) {
             return;
         }
 
-        this.removeAllViews();
-        int tableElements = 0;
-        int rowElements = 0;
-        int rowNumber = 0;
+        long start = mMetrics != null ? System.nanoTime() : 0;
+        mSwatchesCreated = 0;
+        mBlankSpacesCreated = 0;
+        if (mDrawnColors != null && Arrays.equals(mDrawnColors, colors)) {
+            if (selectedColor != mDrawnSelectedColor) {
+                updateSelection(selectedColor);
+            }
+        } else {
+            updateSwatches(colors, selectedColor);
+            if (mDrawnColors != null && mDrawnColors.length == colors.length) {
+                System.arraycopy(colors, 0, mDrawnColors, 0, colors.length);
+            } else {
+                mDrawnColors = colors.clone();
+            }
+            mDrawnSelectedColor = selectedColor;
+        }
+        if (mMetrics != null) {
+            mMetrics.listener.onPaletteDrawn(System.nanoTime() - start, mSwatchesCreated,
+                    getChildCount(), mBlankSpacesCreated);
+        }
+    }
 
-        // Fills the table with swatches based on the array of colors.
-        TableRow row = createTableRow();
-        for (int color : colors) {
-            tableElements++;
+    /**
+     * Moves the checkmark from the previously selected color to {@code selectedColor}.
+     */
+    private void updateSelection(int selectedColor) {
+        for (int i = 0; i < mDrawnColors.length; i++) {
+            int color = mDrawnColors[i];
+            if (color == mDrawnSelectedColor || color == selectedColor) {
+                ColorPickerSwatch swatch = getSwatch(i);
+                swatch.setChecked(color == selectedColor);
+            }
+        }
+        mDrawnSelectedColor = selectedColor;
+    }
 
-            View colorSwatch = createColorSwatch(color, selectedColor);
-            setSwatchDescription(rowNumber, tableElements, rowElements, color == selectedColor,
-                    colorSwatch);
-            addSwatchToRow(row, colorSwatch, rowNumber);
+    /**
+     * Brings the table in line with {@code colors}, reusing the rows and swatches which are
+     * already there.
+     */
+    private void updateSwatches(int[] colors, int selectedColor) {
+        mGeometry.setColorCount(colors.length);
+        int columns = mGeometry.getColumnCount();
+        int rowCount = mGeometry.getRowCount();
 
-            rowElements++;
-            if (rowElements == mNumColumns) {
-                addView(row);
+        while (getChildCount() > rowCount) {
+            removeViewAt(getChildCount() - 1);
+        }
+
+        for (int rowNumber = 0; rowNumber < rowCount; rowNumber++) {
+            TableRow row;
+            if (rowNumber < getChildCount()) {
+                row = (TableRow) getChildAt(rowNumber);
+            } else {
                 row = createTableRow();
-                rowElements = 0;
-                rowNumber++;
+                addView(row);
             }
-        }
 
-        // Create blank views to fill the row if the last row has not been filled.
-        if (rowElements > 0) {
-            while (rowElements != mNumColumns) {
-                addSwatchToRow(row, createBlankSpace(), rowNumber);
-                rowElements++;
+            for (int childIndex = 0; childIndex < columns; childIndex++) {
+                int index = mGeometry.getIndex(rowNumber, childIndex);
+                View child = childIndex < row.getChildCount() ? row.getChildAt(childIndex) : null;
+
+                if (index == -1) {
+                    // Fill the last row with blank views if it is not filled.
+                    if (child == null || child instanceof ColorPickerSwatch) {
+                        replaceChild(row, childIndex, child, createBlankSpace());
+                        mBlankSpacesCreated++;
+                    }
+                    continue;
+                }
+
+                int color = colors[index];
+                boolean selected = color == selectedColor;
+                if (child instanceof ColorPickerSwatch) {
+                    ColorPickerSwatch swatch = (ColorPickerSwatch) child;
+                    boolean wasSelected = mDrawnColors[index] == mDrawnSelectedColor;
+                    if (mDrawnColors[index] != color) {
+                        swatch.setColor(color);
+                    }
+                    if (selected != wasSelected) {
+                        swatch.setChecked(selected);
+                    }
+                } else {
+                    ColorPickerSwatch colorSwatch = createColorSwatch(color, selectedColor);
+                    // The swatch keeps its place, and so its number, until it is removed.
+                    colorSwatch.setAccessibilityIndex(mGeometry.getAccessibilityIndex(index));
+                    replaceChild(row, childIndex, child, colorSwatch);
+                    mSwatchesCreated++;
+                }
             }
-            addView(row);
         }
     }
 
-    /**
-     * Appends a swatch to the end of the row for even-numbered rows (starting with row 0),
-     * to the beginning of a row for odd-numbered rows.
-     */
-    private static void addSwatchToRow(TableRow row, View swatch, int rowNumber) {
-        if (rowNumber % 2 == 0) {
-            row.addView(swatch);
-        } else {
-            row.addView(swatch, 0);
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        long start = mMetrics != null ? mMetrics.startPass(PaletteMetrics.PASS_MEASURE) : 0;
+        super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+        if (mMetrics != null) {
+            mMetrics.endPass(PaletteMetrics.PASS_MEASURE, start);
         }
     }
 
-    /**
-     * Add a content description to the specified swatch view. Because the colors get added in a
-     * snaking form, every other row will need to compensate for the fact that the colors are added
-     * in an opposite direction from their left->right/top->bottom order, which is how the system
-     * will arrange them for accessibility purposes.
-     */
-    private void setSwatchDescription(int rowNumber, int index, int rowElements, boolean selected,
-            View swatch) {
-        int accessibilityIndex;
-        if (rowNumber % 2 == 0) {
-            // We're in a regular-ordered row
-            accessibilityIndex = index;
-        } else {
-            // We're in a backwards-ordered row.
-            int rowMax = ((rowNumber + 1) * mNumColumns);
-            accessibilityIndex = rowMax - rowElements;
+    @Override
+    protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        long start = mMetrics != null ? mMetrics.startPass(PaletteMetrics.PASS_LAYOUT) : 0;
+        super.onLayout(changed, l, t, r, b);
+        if (mMetrics != null) {
+            mMetrics.endPass(PaletteMetrics.PASS_LAYOUT, start);
         }
+    }
 
-        String description;
-        if (selected) {
-            description = String.format(mDescriptionSelected, accessibilityIndex);
-        } else {
-            description = String.format(mDescription, accessibilityIndex);
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+        long start = mMetrics != null ? mMetrics.startPass(PaletteMetrics.PASS_DRAW) : 0;
+        super.dispatchDraw(canvas);
+        if (mMetrics != null) {
+            mMetrics.endPass(PaletteMetrics.PASS_DRAW, start);
+        }
+    }
+
+    @Override
+    public boolean onInterceptTouchEvent(MotionEvent ev) {
+        if (mMetrics != null) {
+            mMetrics.onTouchEvent(ev);
+        }
+        return super.onInterceptTouchEvent(ev);
+    }
+
+    private static void replaceChild(TableRow row, int childIndex, View oldChild, View newChild) {
+        if (oldChild != null) {
+            row.removeViewAt(childIndex);
         }
-        swatch.setContentDescription(description);
+        row.addView(newChild, childIndex);
+    }
+
+    /**
+     * Returns the swatch showing the color at {@code index}.
+     */
+    private ColorPickerSwatch getSwatch(int index) {
+        TableRow row = (TableRow) getChildAt(mGeometry.getRow(index));
+        return (ColorPickerSwatch) row.getChildAt(mGeometry.getColumn(index));
     }
 
     /**
@@ -164,8 +270,10 @@ public class ColorPickerPalette extends TableLayout {
      */
     private ImageView createBlankSpace() {
         ImageView view = new ImageView(getContext());
-        TableRow.LayoutParams params = new TableRow.LayoutParams(mSwatchLength, mSwatchLength);
-        params.setMargins(mMarginSize, mMarginSize, mMarginSize, mMarginSize);
+        int length = mGeometry.getSwatchLength();
+        int margin = mGeometry.getMargin();
+        TableRow.LayoutParams params = new TableRow.LayoutParams(length, length);
+        params.setMargins(margin, margin, margin, margin);
         view.setLayoutParams(params);
         return view;
     }
@@ -175,9 +283,11 @@ public class ColorPickerPalette extends TableLayout {
      */
     private ColorPickerSwatch createColorSwatch(int color, int selectedColor) {
         ColorPickerSwatch view = new ColorPickerSwatch(getContext(), color,
-                color == selectedColor, mOnColorSelectedListener);
-        TableRow.LayoutParams params = new TableRow.LayoutParams(mSwatchLength, mSwatchLength);
-        params.setMargins(mMarginSize, mMarginSize, mMarginSize, mMarginSize);
+                color == selectedColor, mSwatchListener);
+        int length = mGeometry.getSwatchLength();
+        int margin = mGeometry.getMargin();
+        TableRow.LayoutParams params = new TableRow.LayoutParams(length, length);
+        params.setMargins(margin, margin, margin, margin);
         view.setLayoutParams(params);
         return view;
     }
@@ -17,9 +17,9 @@
 package com.woalk.apps.lib.colorpicker;
 
 import android.content.Context;
-import android.graphics.drawable.Drawable;
 import android.view.LayoutInflater;
 import android.view.View;
+import android.view.accessibility.AccessibilityEvent;
 import android.widget.FrameLayout;
 import android.widget.ImageView;
 
@@ -29,7 +29,10 @@ import android.widget.ImageView;
 public class ColorPickerSwatch extends FrameLayout implements View.OnClickListener {
     private int mColor;
     private ImageView mSwatchImage;
+    private ColorStateDrawable mSwatchDrawable;
     private ImageView mCheckmarkImage;
+    private boolean mChecked;
+    private int mAccessibilityIndex;
     private OnColorSelectedListener mOnColorSelectedListener;
 
     /**
@@ -58,12 +61,38 @@ public class ColorPickerSwatch extends FrameLayout implements View.OnClickListen
     }
 
     protected void setColor(int color) {
-        Drawable[] colorDrawable = new Drawable[]
-                {getContext().getResources().getDrawable(R.drawable.color_picker_swatch)};
-        mSwatchImage.setImageDrawable(new ColorStateDrawable(colorDrawable, color));
+        mColor = color;
+        if (mSwatchDrawable != null) {
+            mSwatchDrawable.setColor(color);
+        } else {
+            setSwatchDrawable(SwatchDrawableCache.obtain(getResources(), color));
+        }
+    }
+
+    private void setSwatchDrawable(ColorStateDrawable drawable) {
+        mSwatchDrawable = drawable;
+        mSwatchImage.setImageDrawable(drawable);
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        if (mSwatchDrawable == null) {
+            setSwatchDrawable(SwatchDrawableCache.obtain(getResources(), mColor));
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        // Give the drawable back, it is reused when the palette is shown again.
+        ColorStateDrawable drawable = mSwatchDrawable;
+        setSwatchDrawable(null);
+        SwatchDrawableCache.recycle(drawable);
     }
 
-    private void setChecked(boolean checked) {
+    protected void setChecked(boolean checked) {
+        mChecked = checked;
         if (checked) {
             mCheckmarkImage.setVisibility(View.VISIBLE);
         } else {
@@ -71,6 +100,33 @@ public class ColorPickerSwatch extends FrameLayout implements View.OnClickListen
         }
     }
 
+    /**
+     * Set the number of this swatch in the left->right/top->bottom order, which is how the system
+     * arranges the swatches for accessibility purposes.  The content description is only created
+     * from it when it is asked for, e.g. by an accessibility service.
+     * @param index The number, starting at 1, or 0 to use the content description set with
+     *              {@link #setContentDescription(CharSequence)}.
+     */
+    protected void setAccessibilityIndex(int index) {
+        mAccessibilityIndex = index;
+    }
+
+    @Override
+    public CharSequence getContentDescription() {
+        if (mAccessibilityIndex == 0) {
+            return super.getContentDescription();
+        }
+        return getResources().getString(mChecked ? R.string.color_swatch_description_selected
+                : R.string.color_swatch_description, mAccessibilityIndex);
+    }
+
+    @Override
+    public void onInitializeAccessibilityEvent(AccessibilityEvent event) {
+        super.onInitializeAccessibilityEvent(event);
+        // Events only take a content description set with setContentDescription().
+        event.setContentDescription(getContentDescription());
+    }
+
     @Override
     public void onClick(View v) {
         if (mOnColorSelectedListener != null) {
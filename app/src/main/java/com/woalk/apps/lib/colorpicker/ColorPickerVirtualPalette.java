@@ -0,0 +1,246 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.woalk.apps.lib.colorpicker;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Canvas;
+import android.util.AttributeSet;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.AbsListView;
+import android.widget.BaseAdapter;
+import android.widget.LinearLayout;
+import android.widget.ListView;
+
+import com.woalk.apps.lib.colorpicker.ColorPickerSwatch.OnColorSelectedListener;
+
+/**
+ * A color picker custom view which shows the same serpentine grid of color squares as
+ * {@link ColorPickerPalette}, but only creates the rows which are currently visible.  Rows and
+ * their {@link ColorPickerSwatch} views are recycled while scrolling, so the number of views stays
+ * the same no matter how many colors are shown.
+ * <br/><br/>
+ * This view scrolls by itself and must not be put into a {@link android.widget.ScrollView}.
+ */
+public class ColorPickerVirtualPalette extends ListView implements ColorPaletteView {
+
+    public OnColorSelectedListener mOnColorSelectedListener;
+
+    /**
+     * The geometry of the swatches.  The rows place their children from the end in right-to-left
+     * layouts by themselves, so its columns are the positions of the children.
+     */
+    private PaletteGeometry mGeometry;
+
+    private int[] mColors;
+    private int mSelectedColor;
+
+    private final PaletteAdapter mAdapter = new PaletteAdapter();
+
+    private PaletteMetrics mMetrics;
+
+    /** Passes the colors selected by the swatches on, after taking the tap time. */
+    private final OnColorSelectedListener mSwatchListener = new OnColorSelectedListener() {
+        @Override
+        public void onColorSelected(int color) {
+            if (mMetrics != null) {
+                mMetrics.onColorSelected();
+            }
+            if (mOnColorSelectedListener != null) {
+                mOnColorSelectedListener.onColorSelected(color);
+            }
+        }
+    };
+
+    public ColorPickerVirtualPalette(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        setUp();
+    }
+
+    public ColorPickerVirtualPalette(Context context) {
+        super(context);
+        setUp();
+    }
+
+    private void setUp() {
+        setDivider(null);
+        setDividerHeight(0);
+        setSelector(android.R.color.transparent);
+        setItemsCanFocus(true);
+        setAdapter(mAdapter);
+    }
+
+    /**
+     * Initialize the size, columns, and listener.  Size should be a pre-defined size (SIZE_LARGE
+     * or SIZE_SMALL) from ColorPickerDialogFragment.
+     */
+    @Override
+    public void init(int size, int columns, OnColorSelectedListener listener) {
+        Resources res = getResources();
+        if (size == ColorPickerDialog.SIZE_LARGE) {
+            mGeometry = new PaletteGeometry(columns,
+                    res.getDimensionPixelSize(R.dimen.color_swatch_large),
+                    res.getDimensionPixelSize(R.dimen.color_swatch_margins_large));
+        } else {
+            mGeometry = new PaletteGeometry(columns,
+                    res.getDimensionPixelSize(R.dimen.color_swatch_small),
+                    res.getDimensionPixelSize(R.dimen.color_swatch_margins_small));
+        }
+        mGeometry.setColorCount(mColors != null ? mColors.length : 0);
+        mOnColorSelectedListener = listener;
+
+        // Recycled rows were created for the old size and columns.
+        setAdapter(mAdapter);
+    }
+
+    @Override
+    public void setMetricsListener(PaletteMetricsListener listener) {
+        mMetrics = listener != null ? new PaletteMetrics(listener) : null;
+    }
+
+    /**
+     * Shows the swatches in a serpentine format.  Only the visible rows are bound again.
+     */
+    @Override
+    public void drawPalette(int[] colors, int selectedColor) {
+        if (colors == null) {
+            return;
+        }
+
+        long start = mMetrics != null ? System.nanoTime() : 0;
+        mColors = colors;
+        if (mGeometry != null) {
+            mGeometry.setColorCount(colors.length);
+        }
+        mSelectedColor = selectedColor;
+        mAdapter.notifyDataSetChanged();
+        if (mMetrics != null) {
+            // Rows and their swatches are only created when they are laid out.
+            mMetrics.listener.onPaletteDrawn(System.nanoTime() - start, 0, mAdapter.getCount(),
+                    0);
+        }
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        long start = mMetrics != null ? mMetrics.startPass(PaletteMetrics.PASS_MEASURE) : 0;
+        super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+        if (mMetrics != null) {
+            mMetrics.endPass(PaletteMetrics.PASS_MEASURE, start);
+        }
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        long start = mMetrics != null ? mMetrics.startPass(PaletteMetrics.PASS_LAYOUT) : 0;
+        super.onLayout(changed, l, t, r, b);
+        if (mMetrics != null) {
+            mMetrics.endPass(PaletteMetrics.PASS_LAYOUT, start);
+        }
+    }
+
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+        long start = mMetrics != null ? mMetrics.startPass(PaletteMetrics.PASS_DRAW) : 0;
+        super.dispatchDraw(canvas);
+        if (mMetrics != null) {
+            mMetrics.endPass(PaletteMetrics.PASS_DRAW, start);
+        }
+    }
+
+    @Override
+    public boolean onInterceptTouchEvent(MotionEvent ev) {
+        if (mMetrics != null) {
+            mMetrics.onTouchEvent(ev);
+        }
+        return super.onInterceptTouchEvent(ev);
+    }
+
+    private LinearLayout createRow() {
+        LinearLayout row = new LinearLayout(getContext());
+        row.setOrientation(LinearLayout.HORIZONTAL);
+        row.setLayoutParams(new AbsListView.LayoutParams(AbsListView.LayoutParams.WRAP_CONTENT,
+                AbsListView.LayoutParams.WRAP_CONTENT));
+        int length = mGeometry.getSwatchLength();
+        int margin = mGeometry.getMargin();
+        for (int i = 0; i < mGeometry.getColumnCount(); i++) {
+            ColorPickerSwatch swatch = new ColorPickerSwatch(getContext(), 0, false,
+                    mSwatchListener);
+            LinearLayout.LayoutParams params = new LinearLayout.LayoutParams(length, length);
+            params.setMargins(margin, margin, margin, margin);
+            swatch.setLayoutParams(params);
+            row.addView(swatch);
+        }
+        return row;
+    }
+
+    /**
+     * Binds the swatches of a row.  Every other row is filled from right to left, the swatch
+     * numbers follow the left->right/top->bottom order the system uses for accessibility.
+     * Cells after the last color stay as invisible spacers.
+     */
+    private void bindRow(LinearLayout row, int rowNumber) {
+        for (int i = 0; i < mGeometry.getColumnCount(); i++) {
+            ColorPickerSwatch swatch = (ColorPickerSwatch) row.getChildAt(i);
+            int index = mGeometry.getIndex(rowNumber, i);
+            if (index == -1) {
+                swatch.setVisibility(View.INVISIBLE);
+                continue;
+            }
+
+            int color = mColors[index];
+            boolean selected = color == mSelectedColor;
+            swatch.setVisibility(View.VISIBLE);
+            swatch.setColor(color);
+            swatch.setChecked(selected);
+            swatch.setAccessibilityIndex(mGeometry.getAccessibilityIndex(index));
+        }
+    }
+
+    private class PaletteAdapter extends BaseAdapter {
+
+        @Override
+        public int getCount() {
+            if (mColors == null || mGeometry == null) {
+                return 0;
+            }
+            return mGeometry.getRowCount();
+        }
+
+        @Override
+        public Object getItem(int position) {
+            return null;
+        }
+
+        @Override
+        public long getItemId(int position) {
+            return position;
+        }
+
+        @Override
+        public View getView(int position, View convertView, ViewGroup parent) {
+            LinearLayout row = (LinearLayout) convertView;
+            if (row == null || row.getChildCount() != mGeometry.getColumnCount()) {
+                row = createRow();
+            }
+            bindRow(row, position);
+            return row;
+        }
+    }
+}
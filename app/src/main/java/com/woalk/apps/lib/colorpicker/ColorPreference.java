@@ -23,14 +23,21 @@ public class ColorPreference extends Preference implements ColorPickerSwatch
                                                                    .OnColorSelectedListener {
 
     private static final int DEFAULT_VALUE = Color.BLACK;
+    /** The palette of preferences without {@code picker_colors}, shared by all of them. */
+    private static final int[] DEFAULT_COLORS = new int[]{Color.BLACK, Color.WHITE, Color.RED,
+            Color.GREEN, Color.BLUE};
 
     private String mTitle;
     private int mCurrentValue;
+    private int mColorsResId;
     private int[] mColors;
     private int mColumns;
     private boolean mAllowCustomColor;
+    private boolean mBatchPersistence;
+    private ColorPersister mPersister;
 
     private View mColorView;
+    private ColorPickerDialog mDialog;
 
     public ColorPreference(Context context, AttributeSet attrs) {
         super(context, attrs);
@@ -40,7 +47,8 @@ public class ColorPreference extends Preference implements ColorPickerSwatch
         try {
             int id = a.getResourceId(R.styleable.ColorPreference_picker_colors, 0);
             if (id != 0) {
-                mColors = getContext().getResources().getIntArray(id);
+                mColorsResId = id;
+                mColors = PaletteCache.getColors(getContext().getResources(), id);
             }
             id = a.getResourceId(R.styleable.ColorPreference_picker_dialogTitle, 0);
             if (id != 0) {
@@ -54,6 +62,8 @@ public class ColorPreference extends Preference implements ColorPickerSwatch
             }
             mColumns = a.getInt(R.styleable.ColorPreference_picker_columns, 2);
             mAllowCustomColor = a.getBoolean(R.styleable.ColorPreference_picker_allowCustomColor, false);
+            mBatchPersistence = a.getBoolean(R.styleable.ColorPreference_picker_batchPersistence,
+                    false);
         } finally {
             a.recycle();
         }
@@ -77,8 +87,62 @@ public class ColorPreference extends Preference implements ColorPickerSwatch
         return s;
     }
 
+    /**
+     * Persist the color with a {@link ColorPersister} instead of writing it to the
+     * {@link android.content.SharedPreferences} right away, so the colors of many preferences are
+     * written in one batch.  Setting {@code app:picker_batchPersistence="true"} uses the shared
+     * persister of the preferences, see
+     * {@link ColorPersister#forSharedPreferences(android.content.SharedPreferences)}.
+     * Must be called before the preference is added to its screen.
+     * @param persister The persister, or {@code null} to write the color right away.
+     */
+    public void setColorPersister(ColorPersister persister) {
+        mPersister = persister;
+        mBatchPersistence = false;
+    }
+
+    private ColorPersister getColorPersister() {
+        if (mPersister == null && mBatchPersistence && getSharedPreferences() != null) {
+            mPersister = ColorPersister.forSharedPreferences(getSharedPreferences());
+        }
+        return mPersister;
+    }
+
+    @Override
+    protected boolean persistInt(int value) {
+        ColorPersister persister = getColorPersister();
+        if (persister == null) {
+            return super.persistInt(value);
+        }
+        if (!shouldPersist()) {
+            return false;
+        }
+        if (!persister.contains(getKey()) || persister.getColor(getKey(), value) != value) {
+            persister.putColor(getKey(), value);
+        }
+        return true;
+    }
+
+    @Override
+    protected int getPersistedInt(int defaultReturnValue) {
+        ColorPersister persister = getColorPersister();
+        if (persister == null) {
+            return super.getPersistedInt(defaultReturnValue);
+        }
+        if (!shouldPersist()) {
+            return defaultReturnValue;
+        }
+        return persister.getColor(getKey(), defaultReturnValue);
+    }
+
     @Override
     protected void onSetInitialValue(boolean restorePersistedValue, Object defaultValue) {
+        ColorPersister persister = getColorPersister();
+        if (!restorePersistedValue && persister != null && shouldPersist()
+                && persister.contains(getKey())) {
+            // Only the SharedPreferences were checked for a persisted value.
+            restorePersistedValue = true;
+        }
         if (restorePersistedValue) {
             // Restore existing state
             mCurrentValue = this.getPersistedInt(DEFAULT_VALUE);
@@ -96,14 +160,52 @@ public class ColorPreference extends Preference implements ColorPickerSwatch
 
     @Override
     protected void onClick() {
-        int[] colors = mColors.length != 0 ? mColors : new int[]{Color.BLACK, Color.WHITE, Color
-                .RED, Color.GREEN, Color.BLUE};
-        ColorPickerDialog d = ColorPickerDialog.newInstance(mTitle, colors, mCurrentValue, mColumns,
-                ColorPickerDialog.SIZE_SMALL, mAllowCustomColor);
-        d.setOnColorSelectedListener(this);
+        ColorPickerDialog d = getColorPickerDialog();
+        if (d.isAdded()) {
+            // Already shown.
+            return;
+        }
+        if (mColorsResId != 0) {
+            // Keeps the palette reference, so the instance state of the dialog only contains the
+            // resource id instead of all colors.
+            d.setPaletteResource(mColorsResId);
+            d.setSelectedColor(mCurrentValue);
+        } else {
+            d.setColors(mColors != null && mColors.length != 0 ? mColors : DEFAULT_COLORS,
+                    mCurrentValue);
+        }
         d.show(((Activity) getContext()).getFragmentManager(), null);
     }
 
+    /**
+     * Get the {@link ColorPickerDialog} of this preference.  It is created once and shown again
+     * on every click, so it can be customized, e.g. with
+     * {@link ColorPickerDialog#setPaletteMode(int)}.
+     * @return The dialog.
+     */
+    public ColorPickerDialog getColorPickerDialog() {
+        if (mDialog == null) {
+            mDialog = ColorPickerDialog.newInstance(mTitle,
+                    mColors != null && mColors.length != 0 ? mColors : DEFAULT_COLORS,
+                    mCurrentValue, mColumns, ColorPickerDialog.SIZE_SMALL, mAllowCustomColor);
+            if (mColorsResId != 0) {
+                mDialog.setPaletteResource(mColorsResId);
+            }
+            mDialog.setOnColorSelectedListener(this);
+        }
+        return mDialog;
+    }
+
+    /**
+     * Prepare the dialog before the preference is clicked: creates it and loads the swatch
+     * drawable, so the first click shows the dialog faster.  Call it on the UI thread, e.g. after
+     * the preference screen was shown.
+     */
+    public void prewarm() {
+        getColorPickerDialog();
+        SwatchDrawableCache.prepare(getContext().getResources());
+    }
+
     @Override
     public void onColorSelected(int color) {
         persistInt(color);
@@ -133,7 +235,11 @@ public class ColorPreference extends Preference implements ColorPickerSwatch
         // Set the state's value with the class member that holds current
         // setting value
         myState.current = mCurrentValue;
-        myState.colors = mColors;
+        myState.colorsResId = mColorsResId;
+        if (mColorsResId == 0) {
+            // Only palettes without a resource are saved as a whole.
+            myState.colors = mColors;
+        }
         myState.columns = mColumns;
         return myState;
     }
@@ -153,7 +259,12 @@ public class ColorPreference extends Preference implements ColorPickerSwatch
 
         // Update own values
         mCurrentValue = myState.current;
-        mColors = myState.colors;
+        mColorsResId = myState.colorsResId;
+        if (mColorsResId != 0) {
+            mColors = PaletteCache.getColors(getContext().getResources(), mColorsResId);
+        } else {
+            mColors = myState.colors;
+        }
         mColumns = myState.columns;
 
         // Update shown color
@@ -171,6 +282,7 @@ public class ColorPreference extends Preference implements ColorPickerSwatch
     private static class SavedState extends BaseSavedState {
         // Member that holds the preference's values
         int current;
+        int colorsResId;
         int[] colors;
         int columns;
 
@@ -182,7 +294,8 @@ public class ColorPreference extends Preference implements ColorPickerSwatch
             super(source);
             // Get the current preference's values
             current = source.readInt();
-            source.readIntArray(colors);
+            colorsResId = source.readInt();
+            colors = source.createIntArray();
             columns = source.readInt();
         }
 
@@ -191,6 +304,7 @@ public class ColorPreference extends Preference implements ColorPickerSwatch
             super.writeToParcel(dest, flags);
             // Write the preference's values
             dest.writeInt(current);
+            dest.writeInt(colorsResId);
             dest.writeIntArray(colors);
             dest.writeInt(columns);
         }
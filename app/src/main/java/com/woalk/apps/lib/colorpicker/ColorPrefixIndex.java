@@ -0,0 +1,216 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.woalk.apps.lib.colorpicker;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Finds the colors of a palette whose hex code or name starts with a query, case-insensitive.
+ * The hex codes ({@code rrggbb}, and {@code aarrggbb} for translucent colors), the names and
+ * every word of the names are kept in a sorted array, so a query is a binary search.
+ * <br/><br/>
+ * The index remembers the last query: if a query extends it, e.g. while the user types, only the
+ * matches of the last query are searched.  An index must only be used by one thread at a time.
+ */
+public final class ColorPrefixIndex {
+
+    private final String[] mKeys;
+    /** The palette index of the color of every key. */
+    private final int[] mIndices;
+    /** The matches of the last query, reused by {@link #filter(CharSequence)}. */
+    private final BitSet mMatches;
+
+    private String mQuery = "";
+    private int mStart;
+    private int mEnd;
+
+    /**
+     * Create an index of a palette.
+     * @param colors The palette.
+     * @param names The names of the colors, or {@code null}.  Must be as long as {@code colors} if
+     *              given, and may contain {@code null} elements.
+     */
+    public ColorPrefixIndex(int[] colors, String[] names) {
+        List<String> keys = new ArrayList<String>(colors.length * 2);
+        int[] indices = new int[colors.length * 2];
+        for (int i = 0; i < colors.length; i++) {
+            long color = colors[i] & 0xffffffffL;
+            indices = add(keys, indices,
+                    Long.toHexString((color & 0xffffff) | 0x1000000).substring(1), i);
+            if (color >>> 24 != 0xff) {
+                indices = add(keys, indices,
+                        Long.toHexString(color | 0x100000000L).substring(1), i);
+            }
+
+            String name = names != null ? names[i] : null;
+            if (name == null) {
+                continue;
+            }
+            name = normalize(name);
+            for (int start = 0; start < name.length(); start++) {
+                if (start == 0 || isWordStart(name, start)) {
+                    indices = add(keys, indices, name.substring(start), i);
+                }
+            }
+        }
+
+        // The distinct keys in order; a key is then sorted with its color as one long.
+        String[] distinctKeys = keys.toArray(new String[keys.size()]);
+        Arrays.sort(distinctKeys);
+        int distinctCount = 0;
+        for (int i = 0; i < distinctKeys.length; i++) {
+            if (i == 0 || !distinctKeys[i].equals(distinctKeys[i - 1])) {
+                distinctKeys[distinctCount++] = distinctKeys[i];
+            }
+        }
+        long[] entries = new long[keys.size()];
+        for (int i = 0; i < entries.length; i++) {
+            int rank = Arrays.binarySearch(distinctKeys, 0, distinctCount, keys.get(i));
+            entries[i] = (long) rank << 32 | indices[i];
+        }
+        Arrays.sort(entries);
+
+        // A color is stored once per key, even if e.g. two words of its name are the same.
+        int count = 0;
+        for (int i = 0; i < entries.length; i++) {
+            if (i == 0 || entries[i] != entries[i - 1]) {
+                entries[count++] = entries[i];
+            }
+        }
+        mKeys = new String[count];
+        mIndices = new int[count];
+        for (int i = 0; i < count; i++) {
+            mKeys[i] = distinctKeys[(int) (entries[i] >>> 32)];
+            mIndices[i] = (int) entries[i];
+        }
+        mMatches = new BitSet(colors.length);
+        mEnd = count;
+    }
+
+    /**
+     * Adds a key of the color at {@code index}.
+     * @return The indices array, grown if it was full.
+     */
+    private static int[] add(List<String> keys, int[] indices, String key, int index) {
+        if (keys.size() == indices.length) {
+            indices = Arrays.copyOf(indices, indices.length * 2 + 1);
+        }
+        indices[keys.size()] = index;
+        keys.add(key);
+        return indices;
+    }
+
+    private static boolean isWordStart(String name, int position) {
+        char previous = name.charAt(position - 1);
+        return (Character.isWhitespace(previous) || previous == '-' || previous == '_')
+                && Character.isLetterOrDigit(name.charAt(position));
+    }
+
+    /**
+     * Returns the query in lower case, without a leading {@code '#'} and whitespace.
+     */
+    private static String normalize(CharSequence query) {
+        int start = 0;
+        int end = query.length();
+        while (start < end && Character.isWhitespace(query.charAt(start))) {
+            start++;
+        }
+        if (start < end && query.charAt(start) == '#') {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(query.charAt(end - 1))) {
+            end--;
+        }
+        char[] chars = new char[end - start];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(query.charAt(start + i));
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Find the colors matching a query.
+     * @param query The beginning of a hex code, with or without {@code '#'}, or of a name or a
+     *              word of a name.
+     * @return The indices of the matching colors in the palette, in ascending order.  All
+     * indices for an empty query.
+     */
+    public int[] filter(CharSequence query) {
+        String normalized = normalize(query);
+        int start = 0;
+        int end = mKeys.length;
+        if (normalized.startsWith(mQuery)) {
+            // Narrow the matches of the last query.
+            start = mStart;
+            end = mEnd;
+        }
+        start = lowerBound(normalized, start, end);
+        end = prefixEnd(normalized, start, end);
+        mQuery = normalized;
+        mStart = start;
+        mEnd = end;
+
+        // A color may match with several keys, e.g. its hex code and its name.
+        BitSet matches = mMatches;
+        matches.clear();
+        for (int i = start; i < end; i++) {
+            matches.set(mIndices[i]);
+        }
+        int[] result = new int[matches.cardinality()];
+        for (int i = 0, index = matches.nextSetBit(0); index >= 0;
+                index = matches.nextSetBit(index + 1)) {
+            result[i++] = index;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the first position from {@code start} to {@code end} whose key is not less than
+     * {@code key}.
+     */
+    private int lowerBound(String key, int start, int end) {
+        while (start < end) {
+            int middle = (start + end) >>> 1;
+            if (mKeys[middle].compareTo(key) < 0) {
+                start = middle + 1;
+            } else {
+                end = middle;
+            }
+        }
+        return start;
+    }
+
+    /**
+     * Returns the first position from {@code start} to {@code end} whose key does not start with
+     * {@code prefix}.  All keys in the range must not be less than {@code prefix}, so the keys
+     * starting with it come first.
+     */
+    private int prefixEnd(String prefix, int start, int end) {
+        while (start < end) {
+            int middle = (start + end) >>> 1;
+            if (mKeys[middle].startsWith(prefix)) {
+                start = middle + 1;
+            } else {
+                end = middle;
+            }
+        }
+        return start;
+    }
+}
@@ -0,0 +1,383 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.woalk.apps.lib.colorpicker;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reduces the pixels of an image to a palette with the median cut algorithm, e.g. to pass it to
+ * {@link ColorPickerDialog#setColors(int[])}.  Works on plain color int arrays, see
+ * {@link BitmapColorQuantizer} for bitmaps.
+ * <br/><br/>
+ * The pixels are counted in a histogram of 5 bits per channel, built in parallel on an executor.
+ * The histogram is split into boxes of similar colors until there are as many boxes as colors
+ * requested, and every box becomes the average color of its pixels.  Pixels which are more than
+ * half transparent are ignored.
+ * <br/><br/>
+ * By default, all quantizers share one thread pool with a daemon thread per processor.  It is
+ * never shut down, but its threads exit after {@value #IDLE_SECONDS} seconds without work.  Use
+ * {@link #setExecutor(ExecutorService, int)} to count on an executor of your own instead.
+ */
+public final class ColorQuantizer {
+
+    private static final int BITS = 5;
+    private static final int HISTOGRAM_SIZE = 1 << (3 * BITS);
+    private static final int COMPONENT_MASK = (1 << BITS) - 1;
+
+    /** With a time budget, every pass counts one pixel out of this many. */
+    private static final int SAMPLE_STRIDE = 16;
+    /** Tasks count at least this many pixels, to be worth handing to another thread. */
+    private static final int MIN_PIXELS_PER_TASK = 1 << 15;
+    /** The threads of the shared pool exit after this many seconds without work. */
+    private static final int IDLE_SECONDS = 30;
+
+    private static ExecutorService sDefaultExecutor;
+
+    private final int mMaxColors;
+    private long mTimeBudgetNanos;
+    private boolean mHsvOrder;
+    private ExecutorService mExecutor;
+    private int mParallelism;
+
+    /**
+     * Create a quantizer.
+     * @param maxColors The maximum number of colors of the palettes, at least 1.
+     */
+    public ColorQuantizer(int maxColors) {
+        if (maxColors < 1) {
+            throw new IllegalArgumentException("At least one color is required.");
+        }
+        mMaxColors = maxColors;
+        mExecutor = getDefaultExecutor();
+        mParallelism = Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Limit the time spent on counting pixels.  Pixels are counted in passes, each covering one
+     * out of {@value #SAMPLE_STRIDE} pixels spread evenly over the image.  Once the time budget is
+     * used up, the remaining passes are skipped.  The first pass is always completed.
+     * @param timeBudgetMillis The time budget in milliseconds, or {@code 0} to count all pixels
+     *                         (default).
+     */
+    public void setTimeBudget(long timeBudgetMillis) {
+        mTimeBudgetNanos = TimeUnit.MILLISECONDS.toNanos(timeBudgetMillis);
+    }
+
+    /**
+     * Set the order of the palettes.
+     * @param hsvOrder {@code true} to sort the colors with {@link HsvColorComparator#sort(int[])},
+     *                 by descending hue, and the most saturated and brightest colors of a hue
+     *                 first, {@code false} to put the most common colors first (default).
+     */
+    public void setHsvOrder(boolean hsvOrder) {
+        mHsvOrder = hsvOrder;
+    }
+
+    /**
+     * Set the executor which counts the pixels.  By default, a shared pool with one thread per
+     * processor is used.  The quantizer never shuts an executor down.
+     * @param executor The executor, or {@code null} to count on the calling thread.
+     * @param parallelism The number of tasks to split the pixels into.
+     */
+    public void setExecutor(ExecutorService executor, int parallelism) {
+        mExecutor = executor;
+        mParallelism = Math.max(1, parallelism);
+    }
+
+    private static synchronized ExecutorService getDefaultExecutor() {
+        if (sDefaultExecutor == null) {
+            int threads = Runtime.getRuntime().availableProcessors();
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, IDLE_SECONDS,
+                    TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                        @Override
+                        public Thread newThread(Runnable runnable) {
+                            Thread thread = new Thread(runnable, "ColorQuantizer");
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+            executor.allowCoreThreadTimeOut(true);
+            sDefaultExecutor = executor;
+        }
+        return sDefaultExecutor;
+    }
+
+    /**
+     * Create a palette of the pixels.
+     * @param pixels The color ints {@code (0xAARRGGBB)} of the image.
+     * @return Up to {@code maxColors} colors; fewer if the image has fewer distinct colors.
+     * @throws InterruptedException When the calling thread is interrupted while waiting for the
+     * executor.
+     */
+    public int[] quantize(int[] pixels) throws InterruptedException {
+        int[] histogram = buildHistogram(pixels);
+
+        int binCount = 0;
+        for (int count : histogram) {
+            if (count > 0) {
+                binCount++;
+            }
+        }
+        int[] bins = new int[binCount];
+        int[] counts = new int[binCount];
+        for (int bin = 0, i = 0; bin < HISTOGRAM_SIZE; bin++) {
+            if (histogram[bin] > 0) {
+                bins[i] = bin;
+                counts[i] = histogram[bin];
+                i++;
+            }
+        }
+
+        List<Box> boxes = splitBoxes(bins, counts);
+        int[] colors = new int[boxes.size()];
+        for (int i = 0; i < colors.length; i++) {
+            colors[i] = boxes.get(i).getAverageColor(bins, counts);
+        }
+        if (mHsvOrder) {
+            HsvColorComparator.sort(colors);
+        }
+        return colors;
+    }
+
+    private int[] buildHistogram(int[] pixels) throws InterruptedException {
+        int stride = mTimeBudgetNanos > 0 ? SAMPLE_STRIDE : 1;
+        long deadline = System.nanoTime() + mTimeBudgetNanos;
+        int tasks = mExecutor == null ? 1 : Math.max(1,
+                Math.min(mParallelism, pixels.length / stride / MIN_PIXELS_PER_TASK));
+
+        int[][] histograms = new int[tasks][HISTOGRAM_SIZE];
+        for (int pass = 0; pass < stride; pass++) {
+            // Bit-reversed offsets spread the pixels of the first passes evenly.
+            int offset = Integer.reverse(pass) >>> (Integer.numberOfLeadingZeros(stride) + 1);
+            countPixels(pixels, offset, stride, histograms);
+            if (stride > 1 && System.nanoTime() - deadline > 0) {
+                break;
+            }
+        }
+
+        int[] histogram = histograms[0];
+        for (int task = 1; task < tasks; task++) {
+            for (int bin = 0; bin < HISTOGRAM_SIZE; bin++) {
+                histogram[bin] += histograms[task][bin];
+            }
+        }
+        return histogram;
+    }
+
+    /**
+     * Counts the pixels at {@code offset}, {@code offset + stride}, ..., splitting them among one
+     * task per histogram.
+     */
+    private void countPixels(final int[] pixels, final int offset, final int stride,
+            int[][] histograms) throws InterruptedException {
+        int sampleCount = (pixels.length - offset + stride - 1) / stride;
+        if (histograms.length == 1) {
+            count(pixels, offset, stride, 0, sampleCount, histograms[0]);
+            return;
+        }
+
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(histograms.length);
+        for (int task = 0; task < histograms.length; task++) {
+            final int start = (int) ((long) sampleCount * task / histograms.length);
+            final int end = (int) ((long) sampleCount * (task + 1) / histograms.length);
+            final int[] histogram = histograms[task];
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    count(pixels, offset, stride, start, end, histogram);
+                    return null;
+                }
+            });
+        }
+        for (Future<Void> future : mExecutor.invokeAll(tasks)) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            }
+        }
+    }
+
+    private static void count(int[] pixels, int offset, int stride, int start, int end,
+            int[] histogram) {
+        for (int i = offset + start * stride, last = offset + end * stride; i < last; i += stride) {
+            int pixel = pixels[i];
+            if (pixel >>> 24 >= 0x80) {
+                histogram[((pixel >> (24 - 3 * BITS)) & (COMPONENT_MASK << (2 * BITS)))
+                        | ((pixel >> (16 - 2 * BITS)) & (COMPONENT_MASK << BITS))
+                        | ((pixel >> (8 - BITS)) & COMPONENT_MASK)]++;
+            }
+        }
+    }
+
+    /**
+     * Splits the histogram into at most {@code mMaxColors} boxes.
+     * @return The boxes, the most populated first.
+     */
+    private List<Box> splitBoxes(int[] bins, int[] counts) {
+        List<Box> boxes = new ArrayList<Box>(mMaxColors);
+        if (bins.length == 0) {
+            return boxes;
+        }
+
+        // The next box to split is the one with the most pixels times its longest side.
+        PriorityQueue<Box> queue = new PriorityQueue<Box>(mMaxColors, new Comparator<Box>() {
+            @Override
+            public int compare(Box lhs, Box rhs) {
+                long left = lhs.mPopulation * (long) lhs.getLongestSide();
+                long right = rhs.mPopulation * (long) rhs.getLongestSide();
+                return left < right ? 1 : left > right ? -1 : 0;
+            }
+        });
+        queue.add(new Box(bins, counts, 0, bins.length));
+        int[] sortBuffer = new int[2 * bins.length];
+        while (queue.size() + boxes.size() < mMaxColors && !queue.isEmpty()) {
+            Box box = queue.poll();
+            if (box.getLongestSide() == 0) {
+                // A single bin, all other boxes in the queue are single bins as well.
+                boxes.add(box);
+                continue;
+            }
+            Box[] halves = box.split(bins, counts, sortBuffer);
+            queue.add(halves[0]);
+            queue.add(halves[1]);
+        }
+        boxes.addAll(queue);
+
+        Box[] sorted = boxes.toArray(new Box[boxes.size()]);
+        Arrays.sort(sorted, new Comparator<Box>() {
+            @Override
+            public int compare(Box lhs, Box rhs) {
+                return lhs.mPopulation < rhs.mPopulation ? 1
+                        : lhs.mPopulation > rhs.mPopulation ? -1 : 0;
+            }
+        });
+        return Arrays.asList(sorted);
+    }
+
+    private static int component(int bin, int shift) {
+        return (bin >> shift) & COMPONENT_MASK;
+    }
+
+    /**
+     * Histogram bins from {@code mStart} to {@code mEnd}, and the bounds of their colors.
+     */
+    private static class Box {
+
+        private final int mStart;
+        private final int mEnd;
+        private long mPopulation;
+        private final int[] mMin = new int[3];
+        private final int[] mMax = new int[3];
+
+        public Box(int[] bins, int[] counts, int start, int end) {
+            mStart = start;
+            mEnd = end;
+            Arrays.fill(mMin, COMPONENT_MASK);
+            for (int i = start; i < end; i++) {
+                mPopulation += counts[i];
+                for (int c = 0; c < 3; c++) {
+                    int value = component(bins[i], c * BITS);
+                    mMin[c] = Math.min(mMin[c], value);
+                    mMax[c] = Math.max(mMax[c], value);
+                }
+            }
+        }
+
+        public int getLongestSide() {
+            return Math.max(mMax[0] - mMin[0], Math.max(mMax[1] - mMin[1], mMax[2] - mMin[2]));
+        }
+
+        /**
+         * Sorts the bins along the longest side and splits them where half of the pixels are on
+         * each side.
+         */
+        public Box[] split(int[] bins, int[] counts, int[] sortBuffer) {
+            int longest = 0;
+            for (int c = 1; c < 3; c++) {
+                if (mMax[c] - mMin[c] > mMax[longest] - mMin[longest]) {
+                    longest = c;
+                }
+            }
+            int shift = longest * BITS;
+
+            // Counting sort, the components only have 2^BITS values.
+            int[] offsets = new int[COMPONENT_MASK + 2];
+            for (int i = mStart; i < mEnd; i++) {
+                offsets[component(bins[i], shift) + 1]++;
+            }
+            for (int value = 1; value < offsets.length; value++) {
+                offsets[value] += offsets[value - 1];
+            }
+            for (int i = mStart; i < mEnd; i++) {
+                int position = 2 * offsets[component(bins[i], shift)]++;
+                sortBuffer[position] = bins[i];
+                sortBuffer[position + 1] = counts[i];
+            }
+            for (int i = mStart; i < mEnd; i++) {
+                bins[i] = sortBuffer[2 * (i - mStart)];
+                counts[i] = sortBuffer[2 * (i - mStart) + 1];
+            }
+
+            // Both halves get at least one bin.
+            long half = mPopulation / 2;
+            long population = counts[mStart];
+            int split = mStart + 1;
+            while (split < mEnd - 1 && population < half) {
+                population += counts[split];
+                split++;
+            }
+            return new Box[] {
+                    new Box(bins, counts, mStart, split),
+                    new Box(bins, counts, split, mEnd)
+            };
+        }
+
+        public int getAverageColor(int[] bins, int[] counts) {
+            long red = 0;
+            long green = 0;
+            long blue = 0;
+            for (int i = mStart; i < mEnd; i++) {
+                red += (long) expand(component(bins[i], 2 * BITS)) * counts[i];
+                green += (long) expand(component(bins[i], BITS)) * counts[i];
+                blue += (long) expand(component(bins[i], 0)) * counts[i];
+            }
+            long half = mPopulation / 2;
+            return ColorMath.rgb((int) ((red + half) / mPopulation),
+                    (int) ((green + half) / mPopulation), (int) ((blue + half) / mPopulation));
+        }
+
+        /**
+         * Scales a component of {@code BITS} bits to 8 bits.
+         */
+        private static int expand(int value) {
+            return (value << (8 - BITS)) | (value >> (2 * BITS - 8));
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.woalk.apps.lib.colorpicker;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Generates ramps of lighter and darker variants of colors.  A ramp of {@code steps} consists of
+ * {@code steps} tints, the base color and {@code steps} shades, from the lightest to the darkest.
+ * The variants are evenly spaced in the perceptual OKLab color space on the way from the base
+ * color to white and to black, so they keep the hue of the base color and look evenly spaced.
+ * The alpha of the base color is kept.
+ * <br/><br/>
+ * Ramps are cached, generating the same ramp again only copies it.  Instances are thread-safe.
+ */
+public final class ColorRamps {
+
+    private final Map<Long, int[]> mCache;
+
+    /**
+     * Create a ramp generator.
+     * @param cacheSize The number of ramps to cache.  The least recently used ramps are removed.
+     */
+    @SuppressWarnings("serial")
+    public ColorRamps(final int cacheSize) {
+        mCache = new LinkedHashMap<Long, int[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, int[]> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Get the length of ramps of {@code steps} tints and shades: {@code 2 * steps + 1}.
+     */
+    public static int getRampLength(int steps) {
+        return 2 * steps + 1;
+    }
+
+    /**
+     * Get the ramp of a color.
+     * @param color The base color.
+     * @param steps The number of tints, and of shades, at least 0.
+     * @return A new array of {@link #getRampLength(int)} colors, the base color in the middle.
+     */
+    public int[] getRamp(int color, int steps) {
+        int[] ramp = new int[getRampLength(steps)];
+        getRamp(color, steps, ramp, 0);
+        return ramp;
+    }
+
+    /**
+     * Get the ramp of a color, see {@link #getRamp(int, int)}.
+     * @param ramp Receives {@link #getRampLength(int)} colors, starting at {@code offset}.
+     */
+    public void getRamp(int color, int steps, int[] ramp, int offset) {
+        if (steps < 0) {
+            throw new IllegalArgumentException("The number of steps must not be negative.");
+        }
+        Long key = ((long) color << 32) | steps;
+        int[] cached;
+        synchronized (mCache) {
+            cached = mCache.get(key);
+        }
+        if (cached == null) {
+            cached = generateRamp(color, steps);
+            synchronized (mCache) {
+                mCache.put(key, cached);
+            }
+        }
+        System.arraycopy(cached, 0, ramp, offset, cached.length);
+    }
+
+    /**
+     * Get the ramps of several colors, see {@link #getRamp(int, int)}.
+     * @param ramps Receives the ramps one after another, at least
+     *              {@code colors.length * getRampLength(steps)} long.
+     */
+    public void getRamps(int[] colors, int steps, int[] ramps) {
+        int length = getRampLength(steps);
+        for (int i = 0; i < colors.length; i++) {
+            getRamp(colors[i], steps, ramps, i * length);
+        }
+    }
+
+    /**
+     * Expand a palette into a grid with the ramp of every color in its own column, for
+     * {@link ColorPickerPalette} and the other palette views.  The grid has
+     * {@code colors.length} columns and {@link #getRampLength(int)} rows, from the lightest tints
+     * in the first row to the darkest shades in the last row.  The colors are arranged for the
+     * serpentine format of the palette views, so every column shows the ramp of one color.
+     * @param colors The base colors, one per column.
+     * @param steps The number of tints, and of shades, at least 0.
+     * @return The colors to show with {@code colors.length} columns.
+     */
+    public int[] expandToGrid(int[] colors, int steps) {
+        int columns = colors.length;
+        int rows = getRampLength(steps);
+        int[] ramps = new int[columns * rows];
+        getRamps(colors, steps, ramps);
+
+        int[] grid = new int[ramps.length];
+        for (int row = 0; row < rows; row++) {
+            for (int i = 0; i < columns; i++) {
+                int column = PaletteGeometry.getColumn(columns, row, i);
+                grid[row * columns + i] = ramps[column * rows + row];
+            }
+        }
+        return grid;
+    }
+
+    private static int[] generateRamp(int color, int steps) {
+        int alpha = ColorMath.alpha(color);
+        float[] lab = new float[3];
+        ColorMath.colorToOklab(color, lab);
+
+        int[] ramp = new int[getRampLength(steps)];
+        ramp[steps] = color;
+        for (int step = 1; step <= steps; step++) {
+            // Mixing with white is (1, 0, 0) in OKLab, with black (0, 0, 0).
+            double fraction = (double) step / (steps + 1);
+            double remaining = 1 - fraction;
+            ramp[steps - step] = ColorMath.oklabToColor(alpha, lab[0] * remaining + fraction,
+                    lab[1] * remaining, lab[2] * remaining);
+            ramp[steps + step] = ColorMath.oklabToColor(alpha, lab[0] * remaining,
+                    lab[1] * remaining, lab[2] * remaining);
+        }
+        return ramp;
+    }
+}
@@ -16,8 +16,9 @@
 
 package com.woalk.apps.lib.colorpicker;
 
-import android.graphics.Color;
+import android.graphics.ColorFilter;
 import android.graphics.PorterDuff;
+import android.graphics.PorterDuffColorFilter;
 import android.graphics.drawable.Drawable;
 import android.graphics.drawable.LayerDrawable;
 
@@ -27,15 +28,43 @@ import android.graphics.drawable.LayerDrawable;
  */
 public class ColorStateDrawable extends LayerDrawable {
 
-    private static final float PRESSED_STATE_MULTIPLIER = 0.70f;
+    /** The pressed state multiplier 0.70 as fraction, to scale channels in integer arithmetic. */
+    private static final int PRESSED_STATE_NUMERATOR = 7;
+    private static final int PRESSED_STATE_DENOMINATOR = 10;
 
     private int mColor;
+    private ColorFilter mColorFilter;
+    private ColorFilter mPressedColorFilter;
+    private boolean mColorFilterApplied;
+    private boolean mPressedOrFocused;
 
     public ColorStateDrawable(Drawable[] layers, int color) {
         super(layers);
         mColor = color;
     }
 
+    /**
+     * Change the color of this drawable.
+     */
+    public void setColor(int color) {
+        if (mColor != color) {
+            mColor = color;
+            mColorFilter = null;
+            mPressedColorFilter = null;
+            mColorFilterApplied = false;
+            onStateChange(getState());
+        }
+    }
+
+    public int getColor() {
+        return mColor;
+    }
+
+    /**
+     * Applies the pressed color if the drawable is pressed or focused.  The color filters are
+     * created once per color and only set again if the pressed or focused state flipped, so state
+     * changes don't allocate.
+     */
     @Override
     protected boolean onStateChange(int[] states) {
         boolean pressedOrFocused = false;
@@ -46,23 +75,33 @@ public class ColorStateDrawable extends LayerDrawable {
             }
         }
 
-        if (pressedOrFocused) {
-            super.setColorFilter(getPressedColor(mColor), PorterDuff.Mode.SRC_ATOP);
-        } else {
-            super.setColorFilter(mColor, PorterDuff.Mode.SRC_ATOP);
+        boolean changed = false;
+        if (!mColorFilterApplied || mPressedOrFocused != pressedOrFocused) {
+            mColorFilterApplied = true;
+            mPressedOrFocused = pressedOrFocused;
+            if (pressedOrFocused) {
+                if (mPressedColorFilter == null) {
+                    mPressedColorFilter = new PorterDuffColorFilter(getPressedColor(mColor),
+                            PorterDuff.Mode.SRC_ATOP);
+                }
+                setColorFilter(mPressedColorFilter);
+            } else {
+                if (mColorFilter == null) {
+                    mColorFilter = new PorterDuffColorFilter(mColor, PorterDuff.Mode.SRC_ATOP);
+                }
+                setColorFilter(mColorFilter);
+            }
+            changed = true;
         }
 
-        return super.onStateChange(states);
+        return super.onStateChange(states) || changed;
     }
 
     /**
      * Given a particular color, adjusts its value by a multiplier.
      */
-    private static int getPressedColor(int color) {
-        float[] hsv = new float[3];
-        Color.colorToHSV(color, hsv);
-        hsv[2] = hsv[2] * PRESSED_STATE_MULTIPLIER;
-        return Color.HSVToColor(hsv);
+    static int getPressedColor(int color) {
+        return ColorMath.scaleValue(color, PRESSED_STATE_NUMERATOR, PRESSED_STATE_DENOMINATOR);
     }
 
     @Override
@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.woalk.apps.lib.colorpicker;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * A store for the colors persisted by a {@link ColorPersister}, e.g. the
+ * {@link SharedPreferencesColorStore} or the {@link FileColorStore}.
+ */
+public interface ColorStore {
+
+    /**
+     * Check whether the store contains a color.  Called on the UI thread.
+     * @param key The key of the color.
+     * @return {@code true} if a color is stored for the key.
+     */
+    boolean contains(String key);
+
+    /**
+     * Get a color.  Called on the UI thread.
+     * @param key The key of the color.
+     * @param defaultColor The color to return if none is stored for the key.
+     * @return The stored color, or {@code defaultColor}.
+     */
+    int getColor(String key, int defaultColor);
+
+    /**
+     * Store a batch of colors.  Called on a background thread, one batch at a time.
+     * @param colors The colors by key.
+     * @throws IOException If the colors could not be stored.
+     */
+    void putColors(Map<String, Integer> colors) throws IOException;
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.woalk.apps.lib.colorpicker;
+
+import android.os.AsyncTask;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * A {@link ColorStore} keeping the colors in a properties file of their own, as
+ * {@code key=#AARRGGBB} lines.  The file is read on a background thread when the store is
+ * created, like {@link android.content.SharedPreferences}; only reads before it was read wait
+ * for it.  Every batch of colors replaces the file atomically.  Reads use an immutable snapshot
+ * of the colors, so they never wait for a batch being written.  Instances are thread-safe.
+ */
+public class FileColorStore implements ColorStore {
+
+    private static final String TAG = "FileColorStore";
+
+    private final File mFile;
+    private final CountDownLatch mLoaded = new CountDownLatch(1);
+    /** The colors as stored in the file, an immutable snapshot replaced by every batch. */
+    private volatile Map<String, String> mColors;
+    /** Guards writing the file, so batches are written one at a time. */
+    private final Object mWriteLock = new Object();
+
+    /**
+     * Create a store and start reading its file.
+     * @param file The file to keep the colors in, created by the first batch of colors.
+     */
+    public FileColorStore(File file) {
+        mFile = file;
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                load();
+            }
+        });
+    }
+
+    private void load() {
+        Properties properties = new Properties();
+        if (mFile.exists()) {
+            InputStream in = null;
+            try {
+                in = new FileInputStream(mFile);
+                properties.load(in);
+            } catch (IOException e) {
+                Log.w(TAG, "Could not read the colors from " + mFile, e);
+            } finally {
+                closeQuietly(in);
+            }
+        }
+
+        Map<String, String> colors = new HashMap<String, String>();
+        for (String key : properties.stringPropertyNames()) {
+            colors.put(key, properties.getProperty(key));
+        }
+        mColors = Collections.unmodifiableMap(colors);
+        mLoaded.countDown();
+    }
+
+    /**
+     * Returns the snapshot of the colors, waiting until the file was read.
+     */
+    private Map<String, String> getColors() {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                mLoaded.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return mColors;
+    }
+
+    @Override
+    public boolean contains(String key) {
+        return getColors().containsKey(key);
+    }
+
+    @Override
+    public int getColor(String key, int defaultColor) {
+        String value = getColors().get(key);
+        long color = value != null ? ColorParser.tryParseColor(value) : ColorParser.INVALID_COLOR;
+        return color != ColorParser.INVALID_COLOR ? (int) color : defaultColor;
+    }
+
+    @Override
+    public void putColors(Map<String, Integer> colors) throws IOException {
+        synchronized (mWriteLock) {
+            Map<String, String> merged = new HashMap<String, String>(getColors());
+            for (Map.Entry<String, Integer> entry : colors.entrySet()) {
+                long color = entry.getValue() & 0xffffffffL;
+                merged.put(entry.getKey(),
+                        "#" + Long.toHexString(color | 0x100000000L).substring(1));
+            }
+            // Reads see the new colors right away, while the file is written.
+            mColors = Collections.unmodifiableMap(merged);
+
+            Properties properties = new Properties();
+            properties.putAll(merged);
+            File temp = new File(mFile.getPath() + ".tmp");
+            FileOutputStream out = new FileOutputStream(temp);
+            try {
+                properties.store(out, null);
+                out.flush();
+                // Make the new file durable before it replaces the old one.
+                out.getFD().sync();
+            } finally {
+                out.close();
+            }
+            if (!temp.renameTo(mFile)) {
+                temp.delete();
+                throw new IOException("Could not replace " + mFile);
+            }
+        }
+    }
+
+    private static void closeQuietly(InputStream in) {
+        if (in != null) {
+            try {
+                in.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
@@ -16,8 +16,7 @@
 
 package com.woalk.apps.lib.colorpicker;
 
-import android.graphics.Color;
-
+import java.util.Arrays;
 import java.util.Comparator;
 
 /**
@@ -25,37 +24,91 @@ import java.util.Comparator;
  */
 public class HsvColorComparator implements Comparator<Integer> {
 
+    /** Upper bound of the keys returned by {@link #sortKey(int)}. */
+    private static final long MAX_SORT_KEY = (1L << 46) - 1;
+    /** Number of low bits in the packed sort entries which hold the original index. */
+    private static final int INDEX_BITS = 17;
+
     @Override
     public int compare(Integer lhs, Integer rhs) {
-        float[] hsv = new float[3];
-        Color.colorToHSV(lhs, hsv);
-        float hue1 = hsv[0];
-        float sat1 = hsv[1];
-        float val1 = hsv[2];
-
-        float[] hsv2 = new float[3];
-        Color.colorToHSV(rhs, hsv2);
-        float hue2 = hsv2[0];
-        float sat2 = hsv2[1];
-        float val2 = hsv2[2];
-
-        if (hue1 < hue2) {
+        long key1 = sortKey(lhs);
+        long key2 = sortKey(rhs);
+        if (key1 < key2) {
             return 1;
-        } else if (hue1 > hue2) {
+        } else if (key1 > key2) {
             return -1;
+        }
+        return 0;
+    }
+
+    /**
+     * Returns a key of the hue, saturation, and value of a color, ordered like this comparator:
+     * if the key of {@code lhs} is greater than the key of {@code rhs}, {@code lhs} comes first.
+     * Equal keys mean equal HSV values.  See {@link ColorMath#hsvKey(int)}.
+     */
+    public static long sortKey(int color) {
+        return ColorMath.hsvKey(color);
+    }
+
+    /**
+     * Sorts the colors in the same order as {@code Arrays.sort} with this comparator would,
+     * including the order of colors with equal HSV values, without boxing the colors.  The key of
+     * every color is computed only once.
+     */
+    public static void sort(int[] colors) {
+        int n = colors.length;
+        if (n < 2) {
+            return;
+        }
+
+        if (n <= 1 << INDEX_BITS) {
+            // Pack the inverted key and the index into one long, so the natural order of the
+            // longs is the descending order of the keys, with equal keys kept in index order.
+            long[] entries = new long[n];
+            for (int i = 0; i < n; i++) {
+                entries[i] = ((MAX_SORT_KEY - sortKey(colors[i])) << INDEX_BITS) | i;
+            }
+            Arrays.sort(entries);
+
+            int[] sorted = new int[n];
+            for (int i = 0; i < n; i++) {
+                sorted[i] = colors[(int) (entries[i] & ((1 << INDEX_BITS) - 1))];
+            }
+            System.arraycopy(sorted, 0, colors, 0, n);
         } else {
-            if (sat1 < sat2) {
-                return 1;
-            } else if (sat1 > sat2) {
-                return -1;
-            } else {
-                if (val1 < val2) {
-                    return 1;
-                } else if (val1 > val2) {
-                    return -1;
+            long[] keys = new long[n];
+            for (int i = 0; i < n; i++) {
+                keys[i] = sortKey(colors[i]);
+            }
+            mergeSort(colors, keys);
+        }
+    }
+
+    /**
+     * A stable bottom-up merge sort of {@code colors} by descending {@code keys}.
+     */
+    private static void mergeSort(int[] colors, long[] keys) {
+        int n = colors.length;
+        int[] colorBuffer = new int[n];
+        long[] keyBuffer = new long[n];
+        for (int width = 1; width < n; width *= 2) {
+            for (int start = 0; start < n; start += 2 * width) {
+                int middle = Math.min(start + width, n);
+                int end = Math.min(start + 2 * width, n);
+                int left = start;
+                int right = middle;
+                for (int i = start; i < end; i++) {
+                    if (left < middle && (right >= end || keys[left] >= keys[right])) {
+                        colorBuffer[i] = colors[left];
+                        keyBuffer[i] = keys[left++];
+                    } else {
+                        colorBuffer[i] = colors[right];
+                        keyBuffer[i] = keys[right++];
+                    }
                 }
             }
+            System.arraycopy(colorBuffer, 0, colors, 0, n);
+            System.arraycopy(keyBuffer, 0, keys, 0, n);
         }
-        return 0;
     }
 }
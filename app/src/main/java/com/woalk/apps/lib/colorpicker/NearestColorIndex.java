@@ -0,0 +1,300 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.woalk.apps.lib.colorpicker;
+
+/**
+ * Finds the colors of a palette which look closest to any given color.  The palette is kept in a
+ * k-d tree of its {@link ColorMath#colorToOklab OKLab} components, so a query takes about
+ * {@code O(log n)} instead of comparing every color of the palette.  Alpha is ignored.
+ * <br/><br/>
+ * Queries do not allocate, except for {@link #nearest(int, int[])}, and reuse buffers of the
+ * index, so an index must only be used by one thread at a time.
+ */
+public final class NearestColorIndex {
+
+    private final int mCount;
+    /** The OKLab components of the colors, 3 per node of the tree. */
+    private final float[] mPoints;
+    /** The palette index of the color of every node. */
+    private final int[] mIndices;
+    /** The component every node splits its subtree at. */
+    private final byte[] mAxes;
+
+    private final float[] mQuery = new float[3];
+    private int mBestIndex;
+    private float mBestDistance;
+    private int[] mHeapIndices;
+    private float[] mHeapDistances;
+    private int mHeapSize;
+
+    /**
+     * Create an index of a palette.
+     * @param colors The palette.  The array is not kept, later changes are not reflected.
+     */
+    public NearestColorIndex(int[] colors) {
+        mCount = colors.length;
+        float[] lab = new float[3 * mCount];
+        ColorMath.colorsToOklab(colors, lab);
+
+        mIndices = new int[mCount];
+        for (int i = 0; i < mCount; i++) {
+            mIndices[i] = i;
+        }
+        mAxes = new byte[mCount];
+        build(lab, 0, mCount);
+
+        mPoints = new float[3 * mCount];
+        for (int i = 0; i < mCount; i++) {
+            System.arraycopy(lab, 3 * mIndices[i], mPoints, 3 * i, 3);
+        }
+    }
+
+    /**
+     * Arranges the nodes from {@code start} to {@code end} as a balanced subtree: the median
+     * along the component with the largest spread becomes the root in the middle, smaller
+     * values go before it, greater ones after it.
+     */
+    private void build(float[] lab, int start, int end) {
+        if (end - start <= 1) {
+            return;
+        }
+
+        int axis = 0;
+        float maxSpread = -1;
+        for (int a = 0; a < 3; a++) {
+            float min = Float.MAX_VALUE;
+            float max = -Float.MAX_VALUE;
+            for (int i = start; i < end; i++) {
+                float value = lab[3 * mIndices[i] + a];
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+            if (max - min > maxSpread) {
+                maxSpread = max - min;
+                axis = a;
+            }
+        }
+
+        int middle = (start + end) >>> 1;
+        select(lab, axis, start, end - 1, middle);
+        mAxes[middle] = (byte) axis;
+        build(lab, start, middle);
+        build(lab, middle + 1, end);
+    }
+
+    /**
+     * Partially sorts the nodes from {@code left} to {@code right} (inclusive) by component
+     * {@code axis}, so the node at {@code k} is in its sorted place.
+     */
+    private void select(float[] lab, int axis, int left, int right, int k) {
+        while (left < right) {
+            float pivot = lab[3 * mIndices[(left + right) >>> 1] + axis];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (lab[3 * mIndices[i] + axis] < pivot) {
+                    i++;
+                }
+                while (lab[3 * mIndices[j] + axis] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    int swap = mIndices[i];
+                    mIndices[i] = mIndices[j];
+                    mIndices[j] = swap;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Get the number of colors in the palette.
+     */
+    public int size() {
+        return mCount;
+    }
+
+    /**
+     * Find the palette color closest to {@code color}.  Of equally close colors, the one with the
+     * lowest index is found.
+     * @return The index of the closest color in the palette, or {@code -1} if it is empty.
+     */
+    public int nearest(int color) {
+        ColorMath.colorToOklab(color, mQuery);
+        mBestIndex = -1;
+        mBestDistance = Float.MAX_VALUE;
+        searchNearest(0, mCount);
+        return mBestIndex;
+    }
+
+    /**
+     * Find the closest palette color of each of {@code colors}, see {@link #nearest(int)}.
+     * @param indices Receives the index of the closest color in the palette for every color, at
+     *                least as long as {@code colors}.
+     */
+    public void nearest(int[] colors, int[] indices) {
+        for (int i = 0; i < colors.length; i++) {
+            indices[i] = nearest(colors[i]);
+        }
+    }
+
+    /**
+     * Find the {@code indices.length} palette colors closest to {@code color}.
+     * @param indices Receives the indices of the closest colors in the palette, the closest
+     *                first.
+     * @return The number of colors found, less than {@code indices.length} if the palette is
+     * smaller.
+     */
+    public int nearest(int color, int[] indices) {
+        int k = indices.length;
+        if (mHeapIndices == null || mHeapIndices.length < k) {
+            mHeapIndices = new int[k];
+            mHeapDistances = new float[k];
+        }
+        ColorMath.colorToOklab(color, mQuery);
+        mHeapSize = 0;
+        if (k > 0) {
+            searchNearest(0, mCount, k);
+        }
+
+        // Take the farthest color off the heap until it is empty.
+        int found = mHeapSize;
+        while (mHeapSize > 0) {
+            indices[mHeapSize - 1] = mHeapIndices[0];
+            removeFarthest();
+        }
+        return found;
+    }
+
+    private float distance(int node) {
+        float dl = mPoints[3 * node] - mQuery[0];
+        float da = mPoints[3 * node + 1] - mQuery[1];
+        float db = mPoints[3 * node + 2] - mQuery[2];
+        return dl * dl + da * da + db * db;
+    }
+
+    private void searchNearest(int start, int end) {
+        if (start >= end) {
+            return;
+        }
+        int node = (start + end) >>> 1;
+        float distance = distance(node);
+        if (distance < mBestDistance
+                || (distance == mBestDistance && mIndices[node] < mBestIndex)) {
+            mBestDistance = distance;
+            mBestIndex = mIndices[node];
+        }
+
+        int axis = mAxes[node];
+        float difference = mQuery[axis] - mPoints[3 * node + axis];
+        if (difference < 0) {
+            searchNearest(start, node);
+            if (difference * difference <= mBestDistance) {
+                searchNearest(node + 1, end);
+            }
+        } else {
+            searchNearest(node + 1, end);
+            if (difference * difference <= mBestDistance) {
+                searchNearest(start, node);
+            }
+        }
+    }
+
+    private void searchNearest(int start, int end, int k) {
+        if (start >= end) {
+            return;
+        }
+        int node = (start + end) >>> 1;
+        float distance = distance(node);
+        if (mHeapSize < k) {
+            addToHeap(mIndices[node], distance);
+        } else if (isCloser(distance, mIndices[node], mHeapDistances[0], mHeapIndices[0])) {
+            removeFarthest();
+            addToHeap(mIndices[node], distance);
+        }
+
+        int axis = mAxes[node];
+        float difference = mQuery[axis] - mPoints[3 * node + axis];
+        int nearStart = difference < 0 ? start : node + 1;
+        int nearEnd = difference < 0 ? node : end;
+        searchNearest(nearStart, nearEnd, k);
+        if (mHeapSize < k || difference * difference <= mHeapDistances[0]) {
+            if (difference < 0) {
+                searchNearest(node + 1, end, k);
+            } else {
+                searchNearest(start, node, k);
+            }
+        }
+    }
+
+    private static boolean isCloser(float distance, int index, float otherDistance,
+            int otherIndex) {
+        return distance < otherDistance || (distance == otherDistance && index < otherIndex);
+    }
+
+    /**
+     * Adds a color to the heap, which keeps the farthest of the found colors at its top.
+     */
+    private void addToHeap(int index, float distance) {
+        int child = mHeapSize++;
+        while (child > 0) {
+            int parent = (child - 1) / 2;
+            if (!isCloser(mHeapDistances[parent], mHeapIndices[parent], distance, index)) {
+                break;
+            }
+            mHeapIndices[child] = mHeapIndices[parent];
+            mHeapDistances[child] = mHeapDistances[parent];
+            child = parent;
+        }
+        mHeapIndices[child] = index;
+        mHeapDistances[child] = distance;
+    }
+
+    private void removeFarthest() {
+        int size = --mHeapSize;
+        int index = mHeapIndices[size];
+        float distance = mHeapDistances[size];
+        int parent = 0;
+        while (true) {
+            int child = 2 * parent + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && isCloser(mHeapDistances[child], mHeapIndices[child],
+                    mHeapDistances[child + 1], mHeapIndices[child + 1])) {
+                child++;
+            }
+            if (!isCloser(distance, index, mHeapDistances[child], mHeapIndices[child])) {
+                break;
+            }
+            mHeapIndices[parent] = mHeapIndices[child];
+            mHeapDistances[parent] = mHeapDistances[child];
+            parent = child;
+        }
+        mHeapIndices[parent] = index;
+        mHeapDistances[parent] = distance;
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.woalk.apps.lib.colorpicker;
+
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.util.SparseArray;
+
+/**
+ * A process-wide cache of palettes loaded from integer array resources, e.g. the
+ * {@code picker_colors} of {@link ColorPreference}s.  All users of the same resource share one
+ * array, which must therefore never be modified.
+ * <br/><br/>
+ * Every palette is cached with the {@link Configuration} it was loaded in, and loaded again when
+ * it is requested in another configuration, so resources with configuration qualifiers work.
+ * The cache is thread-safe.
+ */
+public final class PaletteCache {
+
+    private static final SparseArray<Entry> sPalettes = new SparseArray<Entry>();
+
+    private PaletteCache() {
+    }
+
+    /**
+     * Get the palette of an integer array resource.
+     * @param res The resources to load the palette with.
+     * @param id The resource id of the integer array.
+     * @return The shared palette.  Must not be modified.
+     * @throws Resources.NotFoundException If the resource does not exist.
+     */
+    public static int[] getColors(Resources res, int id) {
+        Configuration configuration = res.getConfiguration();
+        synchronized (sPalettes) {
+            Entry entry = sPalettes.get(id);
+            if (entry != null && entry.configuration.equals(configuration)) {
+                return entry.colors;
+            }
+        }
+
+        int[] colors = res.getIntArray(id);
+        put(res, id, colors);
+        return colors;
+    }
+
+    /**
+     * Cache a palette as if it was loaded from an integer array resource in the current
+     * configuration of {@code res}.
+     */
+    static void put(Resources res, int id, int[] colors) {
+        synchronized (sPalettes) {
+            sPalettes.put(id, new Entry(new Configuration(res.getConfiguration()), colors));
+        }
+    }
+
+    /**
+     * Releases all cached palettes.
+     */
+    public static void clear() {
+        synchronized (sPalettes) {
+            sPalettes.clear();
+        }
+    }
+
+    private static final class Entry {
+        final Configuration configuration;
+        final int[] colors;
+
+        Entry(Configuration configuration, int[] colors) {
+            this.configuration = configuration;
+            this.colors = colors;
+        }
+    }
+}
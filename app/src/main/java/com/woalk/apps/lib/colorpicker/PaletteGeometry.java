@@ -0,0 +1,248 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.woalk.apps.lib.colorpicker;
+
+/**
+ * The geometry of the serpentine format all palette views place their swatches in: even-numbered
+ * rows (starting with row 0) are filled from the start to the end, odd-numbered rows from the end
+ * to the start.  Cells after the last color in the last row are blank.
+ * <br/><br/>
+ * Maps between the index of a color in the colors array, its cell (row and column) and the pixel
+ * bounds of its swatch, and finds the swatch at a point, all in constant time.  Columns are
+ * counted from the left; in right-to-left layouts rows start at the right.  Every cell is a
+ * square swatch surrounded by its margin.  Has no Android dependencies.
+ */
+public final class PaletteGeometry {
+
+    private final int mColumns;
+    private final int mSwatchLength;
+    private final int mMargin;
+
+    private int mColorCount;
+    private boolean mRtl;
+    private int mPaddingLeft;
+    private int mPaddingTop;
+
+    /**
+     * Create the geometry of a palette without colors.
+     * @param columns The number of columns, at least 1.
+     * @param swatchLength The width and height of a swatch in pixels.
+     * @param margin The margin on every side of a swatch in pixels.
+     */
+    public PaletteGeometry(int columns, int swatchLength, int margin) {
+        if (columns <= 0) {
+            throw new IllegalArgumentException("A palette needs at least one column.");
+        }
+        mColumns = columns;
+        mSwatchLength = swatchLength;
+        mMargin = margin;
+    }
+
+    /**
+     * Maps between the position of a swatch in its row, counted from the start, and the column of
+     * its color in the colors array.  The mapping is its own inverse.
+     */
+    static int getColumn(int columns, int row, int position) {
+        if (row % 2 == 0) {
+            return position;
+        } else {
+            return columns - 1 - position;
+        }
+    }
+
+    /**
+     * Returns the 1-based number of the swatch of the color at {@code index} in
+     * start->end/top->bottom order, which is how the system will arrange the swatches for
+     * accessibility purposes.
+     */
+    static int getAccessibilityIndex(int columns, int index) {
+        int row = index / columns;
+        return row * columns + getColumn(columns, row, index % columns) + 1;
+    }
+
+    /**
+     * Set the number of colors.
+     */
+    public void setColorCount(int colorCount) {
+        mColorCount = colorCount;
+    }
+
+    /**
+     * Set whether rows start at the right, as in right-to-left layouts.
+     */
+    public void setRtl(boolean rtl) {
+        mRtl = rtl;
+    }
+
+    /**
+     * Set the offset of the first cell from the left and top.
+     */
+    public void setPadding(int left, int top) {
+        mPaddingLeft = left;
+        mPaddingTop = top;
+    }
+
+    public int getColumnCount() {
+        return mColumns;
+    }
+
+    public int getColorCount() {
+        return mColorCount;
+    }
+
+    public int getSwatchLength() {
+        return mSwatchLength;
+    }
+
+    public int getMargin() {
+        return mMargin;
+    }
+
+    /**
+     * Returns the width and height of a cell, a swatch with its margins.
+     */
+    public int getCellLength() {
+        return mSwatchLength + 2 * mMargin;
+    }
+
+    public int getRowCount() {
+        return (mColorCount + mColumns - 1) / mColumns;
+    }
+
+    /**
+     * Returns the number of blank cells which fill the last row.
+     */
+    public int getBlankCount() {
+        return getRowCount() * mColumns - mColorCount;
+    }
+
+    /**
+     * Returns the width of all cells, without padding.
+     */
+    public int getWidth() {
+        return mColumns * getCellLength();
+    }
+
+    /**
+     * Returns the height of all cells, without padding.
+     */
+    public int getHeight() {
+        return getRowCount() * getCellLength();
+    }
+
+    /**
+     * Returns the row of the color at {@code index}.
+     */
+    public int getRow(int index) {
+        return index / mColumns;
+    }
+
+    /**
+     * Returns the column of the color at {@code index}, counted from the left.
+     */
+    public int getColumn(int index) {
+        int position = getColumn(mColumns, index / mColumns, index % mColumns);
+        return mRtl ? mColumns - 1 - position : position;
+    }
+
+    /**
+     * Returns the index of the color in a cell.
+     * @param row The row of the cell.
+     * @param column The column of the cell, counted from the left.
+     * @return The index, or {@code -1} if the cell is blank or outside of the palette.
+     */
+    public int getIndex(int row, int column) {
+        if (row < 0 || column < 0 || column >= mColumns) {
+            return -1;
+        }
+        int position = mRtl ? mColumns - 1 - column : column;
+        int index = row * mColumns + getColumn(mColumns, row, position);
+        return index < mColorCount ? index : -1;
+    }
+
+    /**
+     * Returns the 1-based number of the swatch of the color at {@code index} in reading order,
+     * which is how the system will arrange the swatches for accessibility purposes.
+     */
+    public int getAccessibilityIndex(int index) {
+        return getAccessibilityIndex(mColumns, index);
+    }
+
+    /**
+     * Returns the index of the color of the swatch at {@code position} in reading order, the
+     * inverse of {@link #getAccessibilityIndex(int)} minus one.
+     * @param position The position of the cell in reading order, from {@code 0} to
+     * {@code getRowCount() * getColumnCount() - 1}.
+     * @return The index, or {@code -1} if the cell is blank or outside of the palette.  Blank
+     * cells of an odd-numbered last row come first in reading order.
+     */
+    public int getIndexInReadingOrder(int position) {
+        if (position < 0) {
+            return -1;
+        }
+        int row = position / mColumns;
+        int index = row * mColumns + getColumn(mColumns, row, position % mColumns);
+        return index < mColorCount ? index : -1;
+    }
+
+    /**
+     * Returns the left edge of the swatch of the color at {@code index}.
+     */
+    public int getSwatchLeft(int index) {
+        return mPaddingLeft + getColumn(index) * getCellLength() + mMargin;
+    }
+
+    /**
+     * Returns the top edge of the swatch of the color at {@code index}.
+     */
+    public int getSwatchTop(int index) {
+        return mPaddingTop + getRow(index) * getCellLength() + mMargin;
+    }
+
+    /**
+     * Returns the row at a vertical position, which may be outside of the palette.
+     */
+    public int getRowAt(int y) {
+        int localY = y - mPaddingTop;
+        return localY >= 0 ? localY / getCellLength() : -1;
+    }
+
+    /**
+     * Find the swatch at a point.
+     * @param x The horizontal position, e.g. of a touch event.
+     * @param y The vertical position.
+     * @return The index of the color of the swatch, or {@code -1} if there is no swatch at the
+     * point, e.g. in a margin or a blank cell.
+     */
+    public int getIndexAt(float x, float y) {
+        float localX = x - mPaddingLeft;
+        float localY = y - mPaddingTop;
+        if (localX < 0 || localY < 0) {
+            return -1;
+        }
+        int cell = getCellLength();
+        int column = (int) (localX / cell);
+        int row = (int) (localY / cell);
+        float cellX = localX - column * cell;
+        float cellY = localY - row * cell;
+        if (cellX < mMargin || cellX >= mMargin + mSwatchLength
+                || cellY < mMargin || cellY >= mMargin + mSwatchLength) {
+            return -1;
+        }
+        return getIndex(row, column);
+    }
+}
@@ -0,0 +1,473 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.woalk.apps.lib.colorpicker;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+
+/**
+ * Imports palettes from the files of other applications.  Files are read incrementally and every
+ * color is passed to an {@link OnColorImportedListener} as soon as it is read, so memory use does
+ * not depend on the size of the file.  Malformed entries are reported and skipped.
+ * <br/><br/>
+ * <b>Supported formats are:</b>
+ * <ul>
+ * <li>GIMP palettes ({@code .gpl}), see {@link #importGimpPalette}</li>
+ * <li>Adobe Swatch Exchange ({@code .ase}), see {@link #importAdobeSwatchExchange}</li>
+ * <li>CSS custom properties ({@code --name: #RRGGBB;}), see {@link #importCssProperties}</li>
+ * </ul>
+ * The streams are not closed.
+ */
+public final class PaletteImporter {
+
+    /**
+     * Receives the colors of an import, in the order of the file.
+     */
+    public interface OnColorImportedListener {
+
+        /**
+         * Called for every color read.
+         * @param color The color int {@code (0xAARRGGBB)}.
+         * @param name The name of the color in the file, or {@code null}.
+         */
+        public void onColorImported(int color, String name);
+
+        /**
+         * Called for every entry which cannot be imported.  The import continues with the next
+         * entry.
+         * @param position The line of the entry in text files, or the number of the block in
+         *                 Adobe Swatch Exchange files, starting at 1.
+         * @param message A description of the error.
+         */
+        public void onImportError(int position, String message);
+    }
+
+    /** Lines and declarations longer than this are reported as malformed and skipped. */
+    private static final int MAX_LINE_LENGTH = 1024;
+    /** Blocks of Adobe Swatch Exchange files longer than this are reported and skipped. */
+    private static final int MAX_BLOCK_LENGTH = 4096;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final Charset UTF_16BE = Charset.forName("UTF-16BE");
+
+    private static final int ASE_SIGNATURE = 0x41534546; // "ASEF"
+    private static final int ASE_COLOR_ENTRY = 0x0001;
+    private static final int ASE_MODEL_RGB = 0x52474220; // "RGB "
+    private static final int ASE_MODEL_CMYK = 0x434d594b; // "CMYK"
+    private static final int ASE_MODEL_LAB = 0x4c414220; // "LAB "
+    private static final int ASE_MODEL_GRAY = 0x47726179; // "Gray"
+
+    private PaletteImporter() {
+    }
+
+    /**
+     * Imports a GIMP palette, encoded in UTF-8.  Every line after the {@code GIMP Palette} header
+     * which is no comment and no {@code Name:} or {@code Columns:} attribute is a color: its red,
+     * green and blue values {@code [0, 255]}, optionally followed by its name.
+     * @param in The stream to read the palette from.
+     * @param listener The listener to pass the colors to.
+     * @throws IOException When the stream cannot be read or is no GIMP palette.
+     */
+    public static void importGimpPalette(InputStream in, OnColorImportedListener listener)
+            throws IOException {
+        LineReader reader = new LineReader(new InputStreamReader(in, UTF_8));
+        if (!reader.readLine() || !"GIMP Palette".equals(trim(reader.mLine, 0).toString())) {
+            throw new IOException("Not a GIMP palette.");
+        }
+
+        int[] rgb = new int[3];
+        while (reader.readLine()) {
+            StringBuilder line = reader.mLine;
+            int position = skipWhitespace(line, 0);
+            if (position == line.length() || line.charAt(position) == '#'
+                    || startsWith(line, position, "Name:")
+                    || startsWith(line, position, "Columns:")) {
+                continue;
+            }
+            if (reader.mTooLong) {
+                listener.onImportError(reader.mLineNumber, "Line too long.");
+                continue;
+            }
+
+            for (int i = 0; i < 3 && position >= 0; i++) {
+                position = parseChannel(line, skipWhitespace(line, position), rgb, i);
+            }
+            if (position < 0 || (position < line.length()
+                    && !Character.isWhitespace(line.charAt(position)))) {
+                listener.onImportError(reader.mLineNumber, "Invalid color: " + line);
+                continue;
+            }
+            CharSequence name = trim(line, position);
+            listener.onColorImported(ColorMath.rgb(rgb[0], rgb[1], rgb[2]),
+                    name.length() == 0 ? null : name.toString());
+        }
+    }
+
+    /**
+     * Parses a decimal channel value {@code [0, 255]} at {@code start} into {@code rgb[index]}.
+     * @return The position after the value, or {@code -1} if there is no valid value.
+     */
+    private static int parseChannel(CharSequence line, int start, int[] rgb, int index) {
+        int value = 0;
+        int position = start;
+        while (position < line.length() && position - start < 3) {
+            int digit = Character.digit(line.charAt(position), 10);
+            if (digit < 0) {
+                break;
+            }
+            value = value * 10 + digit;
+            position++;
+        }
+        if (position == start || value > 255 || (position < line.length()
+                && Character.digit(line.charAt(position), 10) >= 0)) {
+            // The digits after the third do not start the next channel.
+            return -1;
+        }
+        rgb[index] = value;
+        return position;
+    }
+
+    /**
+     * Imports an Adobe Swatch Exchange file.  Colors of the RGB, CMYK, LAB and Gray models are
+     * converted to sRGB; CMYK without a color profile, LAB relative to the D50 white point.
+     * Groups are flattened.
+     * @param in The stream to read the swatches from.
+     * @param listener The listener to pass the colors to.
+     * @throws IOException When the stream cannot be read or is no Adobe Swatch Exchange file.
+     */
+    public static void importAdobeSwatchExchange(InputStream in,
+            OnColorImportedListener listener) throws IOException {
+        DataInputStream data = new DataInputStream(in instanceof BufferedInputStream ? in
+                : new BufferedInputStream(in));
+        if (data.readInt() != ASE_SIGNATURE) {
+            throw new IOException("Not an Adobe Swatch Exchange file.");
+        }
+        data.readInt(); // Version
+        int blockCount = data.readInt();
+
+        byte[] block = new byte[MAX_BLOCK_LENGTH];
+        for (int blockNumber = 1; blockNumber <= blockCount; blockNumber++) {
+            int type;
+            int length;
+            try {
+                type = data.readUnsignedShort();
+                length = data.readInt();
+                if (length < 0 || length > MAX_BLOCK_LENGTH) {
+                    listener.onImportError(blockNumber, "Invalid block length " + length + ".");
+                    skipFully(data, length & 0xffffffffL);
+                    continue;
+                }
+                data.readFully(block, 0, length);
+            } catch (EOFException e) {
+                listener.onImportError(blockNumber, "Unexpected end of file.");
+                return;
+            }
+
+            if (type == ASE_COLOR_ENTRY) {
+                String error = readAseColor(block, length, listener);
+                if (error != null) {
+                    listener.onImportError(blockNumber, error);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the color entry in the first {@code length} bytes of {@code block} and passes it to
+     * the listener.
+     * @return A description of the error if the entry is malformed, otherwise {@code null}.
+     */
+    private static String readAseColor(byte[] block, int length,
+            OnColorImportedListener listener) {
+        if (length < 2) {
+            return "Truncated color entry.";
+        }
+        // The length of the name in UTF-16 code units, including a terminating null.
+        int nameLength = 2 * readShort(block, 0);
+        int model = 2 + nameLength;
+        if (model + 4 > length) {
+            return "Truncated color entry.";
+        }
+        String name = nameLength > 2 ? new String(block, 2, nameLength - 2, UTF_16BE) : null;
+
+        int values = model + 4;
+        int color;
+        switch (readInt(block, model)) {
+            case ASE_MODEL_RGB:
+                if (values + 12 > length) {
+                    return "Truncated RGB color.";
+                }
+                color = ColorMath.rgb(toByte(readFloat(block, values)),
+                        toByte(readFloat(block, values + 4)), toByte(readFloat(block, values + 8)));
+                break;
+            case ASE_MODEL_CMYK:
+                if (values + 16 > length) {
+                    return "Truncated CMYK color.";
+                }
+                float black = 1 - readFloat(block, values + 12);
+                color = ColorMath.rgb(toByte((1 - readFloat(block, values)) * black),
+                        toByte((1 - readFloat(block, values + 4)) * black),
+                        toByte((1 - readFloat(block, values + 8)) * black));
+                break;
+            case ASE_MODEL_LAB:
+                if (values + 12 > length) {
+                    return "Truncated LAB color.";
+                }
+                // The lightness is stored in [0, 1].
+                color = ColorMath.labToColor(100 * readFloat(block, values),
+                        readFloat(block, values + 4), readFloat(block, values + 8));
+                break;
+            case ASE_MODEL_GRAY:
+                if (values + 4 > length) {
+                    return "Truncated Gray color.";
+                }
+                int gray = toByte(readFloat(block, values));
+                color = ColorMath.rgb(gray, gray, gray);
+                break;
+            default:
+                return "Unsupported color model.";
+        }
+        listener.onColorImported(color, name);
+        return null;
+    }
+
+    private static int readShort(byte[] b, int offset) {
+        return ((b[offset] & 0xff) << 8) | (b[offset + 1] & 0xff);
+    }
+
+    private static int readInt(byte[] b, int offset) {
+        return (readShort(b, offset) << 16) | readShort(b, offset + 2);
+    }
+
+    private static float readFloat(byte[] b, int offset) {
+        return Float.intBitsToFloat(readInt(b, offset));
+    }
+
+    /**
+     * Converts a channel value {@code [0, 1]} to {@code [0, 255]}, clamping values out of range.
+     */
+    private static int toByte(float value) {
+        return value <= 0 ? 0 : value >= 1 ? 255 : (int) (value * 255 + 0.5f);
+    }
+
+    private static void skipFully(InputStream in, long count) throws IOException {
+        while (count > 0) {
+            long skipped = in.skip(count);
+            if (skipped <= 0) {
+                if (in.read() < 0) {
+                    return;
+                }
+                skipped = 1;
+            }
+            count -= skipped;
+        }
+    }
+
+    /**
+     * Imports the custom properties of a CSS file, encoded in UTF-8, e.g.
+     * {@code --brand-red: #e53935;}.  The values are parsed by {@link ColorParser}, except for the
+     * {@code #RGBA} and {@code #RRGGBBAA} formats, whose alpha comes last in CSS.  The names are
+     * passed without the leading {@code --}.  Custom properties whose values are no color are
+     * reported as errors, other declarations are ignored.
+     * @param in The stream to read the CSS from.
+     * @param listener The listener to pass the colors to.
+     * @throws IOException When the stream cannot be read.
+     */
+    public static void importCssProperties(InputStream in, OnColorImportedListener listener)
+            throws IOException {
+        Reader reader = new InputStreamReader(in, UTF_8);
+        char[] buffer = new char[8192];
+        StringBuilder declaration = new StringBuilder(MAX_LINE_LENGTH);
+        boolean tooLong = false;
+        boolean inComment = false;
+        int line = 1;
+        int declarationLine = 1;
+        char previous = 0;
+
+        int count;
+        while ((count = reader.read(buffer)) >= 0) {
+            for (int i = 0; i < count; i++) {
+                char c = buffer[i];
+                if (c == '\n') {
+                    line++;
+                }
+                if (inComment) {
+                    if (previous == '*' && c == '/') {
+                        inComment = false;
+                        c = 0;
+                    }
+                } else if (previous == '/' && c == '*') {
+                    inComment = true;
+                    // Remove the '/' starting the comment.
+                    if (declaration.length() > 0) {
+                        declaration.setLength(declaration.length() - 1);
+                    }
+                    c = 0;
+                } else if (c == ';' || c == '{' || c == '}') {
+                    if (c != '{') {
+                        readCssProperty(declaration, tooLong, declarationLine, listener);
+                    }
+                    declaration.setLength(0);
+                    tooLong = false;
+                } else if (declaration.length() == 0 && Character.isWhitespace(c)) {
+                    // Leading whitespace is not part of the declaration.
+                } else if (declaration.length() < MAX_LINE_LENGTH) {
+                    if (declaration.length() == 0) {
+                        declarationLine = line;
+                    }
+                    declaration.append(c);
+                } else {
+                    tooLong = true;
+                }
+                previous = c;
+            }
+        }
+        readCssProperty(declaration, tooLong, declarationLine, listener);
+    }
+
+    private static void readCssProperty(StringBuilder declaration, boolean tooLong, int line,
+            OnColorImportedListener listener) {
+        if (!startsWith(declaration, 0, "--")) {
+            return;
+        }
+        if (tooLong) {
+            listener.onImportError(line, "Declaration too long.");
+            return;
+        }
+        int colon = declaration.indexOf(":");
+        if (colon < 0) {
+            listener.onImportError(line, "Invalid declaration: " + declaration);
+            return;
+        }
+
+        String name = trim(declaration.subSequence(2, colon), 0).toString();
+        CharSequence value = trim(declaration, colon + 1);
+        int important = value.length() - "!important".length();
+        if (important >= 0 && value.toString().regionMatches(true, important, "!important", 0,
+                "!important".length())) {
+            value = trim(value.subSequence(0, important), 0);
+        }
+        long color = ColorParser.tryParseColor(value);
+        if (color == ColorParser.INVALID_COLOR) {
+            listener.onImportError(line, "Not a color: " + value);
+            return;
+        }
+        if (value.charAt(0) == '#' && (value.length() == 5 || value.length() == 9)) {
+            // CSS puts the alpha last, move it from the lowest to the highest byte.
+            color = (color & 0xffffffffL) >>> 8 | (color & 0xff) << 24;
+        }
+        listener.onColorImported((int) color, name);
+    }
+
+    private static int skipWhitespace(CharSequence s, int start) {
+        while (start < s.length() && Character.isWhitespace(s.charAt(start))) {
+            start++;
+        }
+        return start;
+    }
+
+    /**
+     * Returns {@code s} from {@code start} without leading and trailing whitespace.
+     */
+    private static CharSequence trim(CharSequence s, int start) {
+        int end = s.length();
+        start = skipWhitespace(s, start);
+        while (end > start && Character.isWhitespace(s.charAt(end - 1))) {
+            end--;
+        }
+        return s.subSequence(start, end);
+    }
+
+    private static boolean startsWith(CharSequence s, int start, String prefix) {
+        if (s.length() - start < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (s.charAt(start + i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads lines of at most {@link #MAX_LINE_LENGTH} characters; the rest of longer lines is
+     * skipped.
+     */
+    private static class LineReader {
+
+        private final Reader mReader;
+        private final char[] mBuffer = new char[8192];
+        private int mPosition;
+        private int mCount;
+
+        public final StringBuilder mLine = new StringBuilder(MAX_LINE_LENGTH);
+        public boolean mTooLong;
+        public int mLineNumber;
+
+        public LineReader(Reader reader) {
+            mReader = reader;
+        }
+
+        /**
+         * Reads the next line into {@link #mLine}.
+         * @return {@code false} at the end of the stream.
+         */
+        public boolean readLine() throws IOException {
+            mLine.setLength(0);
+            mTooLong = false;
+            boolean read = false;
+            while (true) {
+                if (mPosition == mCount) {
+                    mCount = mReader.read(mBuffer);
+                    mPosition = 0;
+                    if (mCount <= 0) {
+                        mCount = 0;
+                        if (read) {
+                            mLineNumber++;
+                        }
+                        return read;
+                    }
+                }
+                read = true;
+                char c = mBuffer[mPosition++];
+                if (c == '\n') {
+                    mLineNumber++;
+                    int end = mLine.length();
+                    if (end > 0 && mLine.charAt(end - 1) == '\r') {
+                        mLine.setLength(end - 1);
+                    }
+                    return true;
+                } else if (c == '\uFEFF' && mLineNumber == 0 && mLine.length() == 0) {
+                    // Byte order mark.
+                    continue;
+                }
+                if (mLine.length() < MAX_LINE_LENGTH) {
+                    mLine.append(c);
+                } else {
+                    mTooLong = true;
+                }
+            }
+        }
+    }
+}
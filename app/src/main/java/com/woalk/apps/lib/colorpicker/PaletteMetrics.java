@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.woalk.apps.lib.colorpicker;
+
+import android.os.SystemClock;
+import android.view.MotionEvent;
+
+/**
+ * Takes the timings of a {@link ColorPaletteView} for its {@link PaletteMetricsListener}.  The
+ * palette views only create one when a listener is set, so there is no cost without one.
+ */
+final class PaletteMetrics {
+
+    static final int PASS_MEASURE = 0;
+    static final int PASS_LAYOUT = 1;
+    static final int PASS_DRAW = 2;
+
+    final PaletteMetricsListener listener;
+
+    /** The passes which were reported, one bit per pass. */
+    private int mReportedPasses;
+    private long mTapTime;
+
+    PaletteMetrics(PaletteMetricsListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Returns the start time of a pass, or {@code 0} if the first pass was already reported.
+     */
+    long startPass(int pass) {
+        return (mReportedPasses & (1 << pass)) == 0 ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Reports the first pass which started at {@code start}, if {@code start} is not {@code 0}.
+     */
+    void endPass(int pass, long start) {
+        if (start == 0) {
+            return;
+        }
+        mReportedPasses |= 1 << pass;
+        long duration = System.nanoTime() - start;
+        switch (pass) {
+            case PASS_MEASURE:
+                listener.onFirstMeasure(duration);
+                break;
+            case PASS_LAYOUT:
+                listener.onFirstLayout(duration);
+                break;
+            case PASS_DRAW:
+                listener.onFirstDraw(duration);
+                break;
+        }
+    }
+
+    /**
+     * Remembers the time of a touch event if it lifts the finger.
+     */
+    void onTouchEvent(MotionEvent event) {
+        if (event.getActionMasked() == MotionEvent.ACTION_UP) {
+            mTapTime = event.getEventTime();
+        }
+    }
+
+    /**
+     * Reports the time since the last tap, if a color is selected by a tap.
+     */
+    void onColorSelected() {
+        if (mTapTime != 0) {
+            listener.onColorSelected(SystemClock.uptimeMillis() - mTapTime);
+            mTapTime = 0;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.woalk.apps.lib.colorpicker;
+
+/**
+ * Receives timings of a {@link ColorPickerDialog} and its {@link ColorPaletteView}, e.g. to
+ * report them to telemetry.  See
+ * {@link ColorPickerDialog#setMetricsListener(PaletteMetricsListener)}.  All methods are called
+ * on the UI thread and should return quickly.
+ */
+public interface PaletteMetricsListener {
+
+    /**
+     * Called when the dialog inflated its layout.
+     * @param durationNanos The time the inflation took.
+     */
+    public void onDialogInflated(long durationNanos);
+
+    /**
+     * Called when the palette view showed colors, see {@link ColorPaletteView#drawPalette}.
+     * @param durationNanos The time {@code drawPalette} took.
+     * @param swatchesCreated The number of swatch views created, {@code 0} if the palette view
+     *                        does not create views or reused all of them.
+     * @param rows The number of rows of the palette.
+     * @param blankSpaces The number of blank views created to fill the last row.
+     */
+    public void onPaletteDrawn(long durationNanos, int swatchesCreated, int rows,
+            int blankSpaces);
+
+    /**
+     * Called after the first measure pass of the palette view.
+     * @param durationNanos The time the measure pass took.
+     */
+    public void onFirstMeasure(long durationNanos);
+
+    /**
+     * Called after the first layout pass of the palette view.
+     * @param durationNanos The time the layout pass took.
+     */
+    public void onFirstLayout(long durationNanos);
+
+    /**
+     * Called after the palette view was drawn the first time.
+     * @param durationNanos The time drawing took.
+     */
+    public void onFirstDraw(long durationNanos);
+
+    /**
+     * Called when a tapped color is passed on as selected color.
+     * @param tapToSelectMillis The time from lifting the finger until the color was passed on.
+     */
+    public void onColorSelected(long tapToSelectMillis);
+}
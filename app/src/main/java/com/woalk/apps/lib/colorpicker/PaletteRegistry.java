@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.woalk.apps.lib.colorpicker;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A process-wide registry of palettes by key.  A {@link ColorPickerDialog} showing a registered
+ * palette only saves the key in its instance state instead of all colors, see
+ * {@link ColorPickerDialog#setPaletteKey(String)}.
+ * <br/><br/>
+ * The registry is empty after the process was restarted, so register the palettes on every start,
+ * e.g. in {@link android.app.Application#onCreate()}, before a dialog restores its state.  The
+ * registry is thread-safe.
+ */
+public final class PaletteRegistry {
+
+    private static final Map<String, int[]> sPalettes = new HashMap<String, int[]>();
+    /** The names of the palettes registered with names, guarded by {@code sPalettes}. */
+    private static final Map<String, String[]> sNames = new HashMap<String, String[]>();
+
+    private PaletteRegistry() {
+    }
+
+    /**
+     * Register a palette.
+     * @param key The key to register the palette with.  Replaces a palette registered with the
+     *            same key.
+     * @param colors The palette.  Must not be modified after it was registered.
+     */
+    public static void register(String key, int[] colors) {
+        register(key, colors, null);
+    }
+
+    /**
+     * Register a palette with the names of its colors.  A dialog showing the palette then keeps
+     * neither the colors nor the names in its instance state.
+     * @param key The key to register the palette with.  Replaces a palette registered with the
+     *            same key.
+     * @param colors The palette.  Must not be modified after it was registered.
+     * @param names The names of the colors, see {@link ColorPickerDialog#setColorNames(String[])},
+     *              or {@code null}.  Must not be modified after it was registered.
+     */
+    public static void register(String key, int[] colors, String[] names) {
+        synchronized (sPalettes) {
+            sPalettes.put(key, colors);
+            if (names != null) {
+                sNames.put(key, names);
+            } else {
+                sNames.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Register a palette with a key derived from its colors, which is the same for the same
+     * colors in every process.
+     * @param colors The palette.  Must not be modified after it was registered.
+     * @return The key of the palette.
+     */
+    public static String register(int[] colors) {
+        String key = getContentKey(colors);
+        register(key, colors);
+        return key;
+    }
+
+    /**
+     * Returns a key derived from the colors, the same for the same colors in every process.
+     */
+    static String getContentKey(int[] colors) {
+        // 64-bit FNV-1a, so different palettes practically never share a key.
+        long hash = 0xcbf29ce484222325L;
+        for (int color : colors) {
+            hash = (hash ^ color) * 0x100000001b3L;
+        }
+        return "#" + colors.length + ":" + Long.toHexString(hash);
+    }
+
+    /**
+     * Remove a palette from the registry.
+     * @param key The key of the palette.
+     */
+    public static void unregister(String key) {
+        synchronized (sPalettes) {
+            sPalettes.remove(key);
+            sNames.remove(key);
+        }
+    }
+
+    /**
+     * Get a registered palette.
+     * @param key The key of the palette.
+     * @return The palette, or {@code null} if no palette is registered with the key.
+     */
+    public static int[] get(String key) {
+        synchronized (sPalettes) {
+            return sPalettes.get(key);
+        }
+    }
+
+    /**
+     * Get the names of the colors of a registered palette.
+     * @param key The key of the palette.
+     * @return The names, or {@code null} if the palette was registered without names or is not
+     * registered.
+     */
+    public static String[] getNames(String key) {
+        synchronized (sPalettes) {
+            return sNames.get(key);
+        }
+    }
+}
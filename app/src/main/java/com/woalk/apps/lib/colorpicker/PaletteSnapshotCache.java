@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.woalk.apps.lib.colorpicker;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
+import android.util.LruCache;
+
+/**
+ * A process-wide cache of rendered palettes, which a {@link ColorPickerDialog} shows right away
+ * when it is opened again, while the real palette is prepared behind it.  See
+ * {@link ColorPickerDialog#setSnapshotCacheEnabled(boolean)}.
+ * <br/><br/>
+ * The least recently used snapshots are removed when the cache exceeds its budget, and all
+ * snapshots and pooled swatch drawables are released when the system asks the app to trim its
+ * memory.  Must only be used from the UI thread.
+ */
+public final class PaletteSnapshotCache {
+
+    /** The default budget of the cache in bytes. */
+    public static final int DEFAULT_MAX_BYTES = 4 * 1024 * 1024;
+
+    private static LruCache<String, Bitmap> sSnapshots = createCache(DEFAULT_MAX_BYTES);
+    private static int sMaxBytes = DEFAULT_MAX_BYTES;
+    private static boolean sRegistered;
+
+    private static final ComponentCallbacks2 sTrimMemoryCallbacks = new ComponentCallbacks2() {
+        @Override
+        public void onTrimMemory(int level) {
+            clear();
+            SwatchDrawableCache.clear();
+        }
+
+        @Override
+        public void onConfigurationChanged(Configuration newConfig) {
+        }
+
+        @Override
+        public void onLowMemory() {
+            onTrimMemory(TRIM_MEMORY_COMPLETE);
+        }
+    };
+
+    private PaletteSnapshotCache() {
+    }
+
+    private static LruCache<String, Bitmap> createCache(int maxBytes) {
+        return new LruCache<String, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap value) {
+                return value.getRowBytes() * value.getHeight();
+            }
+        };
+    }
+
+    /**
+     * Set the budget of the cache.  Removes all snapshots.
+     * @param maxBytes The maximum size of all snapshots in bytes.
+     */
+    public static void setMaxBytes(int maxBytes) {
+        sSnapshots = createCache(maxBytes);
+        sMaxBytes = maxBytes;
+    }
+
+    /**
+     * Releases all snapshots.
+     */
+    public static void clear() {
+        sSnapshots.evictAll();
+    }
+
+    /**
+     * Releases the memory of the cache when the system asks the app to trim its memory.
+     */
+    static void register(Context context) {
+        if (!sRegistered) {
+            context.getApplicationContext().registerComponentCallbacks(sTrimMemoryCallbacks);
+            sRegistered = true;
+        }
+    }
+
+    /**
+     * Returns the key of the snapshot of a palette.
+     */
+    static String getKey(int[] colors, int columns, int size, int paletteMode, int density,
+            int selectedColor) {
+        return PaletteRegistry.getContentKey(colors) + "/" + columns + "/" + size + "/"
+                + paletteMode + "/" + density + "/" + selectedColor;
+    }
+
+    static Bitmap get(String key) {
+        return sSnapshots.get(key);
+    }
+
+    /**
+     * Returns whether a snapshot of {@code bytes} should be cached.  A snapshot taking more than a
+     * quarter of the budget would remove too many others.
+     */
+    static boolean fits(long bytes) {
+        return bytes <= sMaxBytes / 4;
+    }
+
+    static void put(String key, Bitmap snapshot) {
+        sSnapshots.put(key, snapshot);
+    }
+}
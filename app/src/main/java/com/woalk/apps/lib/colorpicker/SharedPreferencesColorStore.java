@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.woalk.apps.lib.colorpicker;
+
+import android.content.SharedPreferences;
+
+import java.util.Map;
+
+/**
+ * A {@link ColorStore} writing every batch of colors to {@link SharedPreferences} with a single
+ * {@link SharedPreferences.Editor#apply()}.  The colors are stored as {@code int}s, like
+ * {@link android.preference.Preference#persistInt(int)} does.
+ */
+public final class SharedPreferencesColorStore implements ColorStore {
+
+    private final SharedPreferences mPreferences;
+
+    public SharedPreferencesColorStore(SharedPreferences preferences) {
+        mPreferences = preferences;
+    }
+
+    @Override
+    public boolean contains(String key) {
+        return mPreferences.contains(key);
+    }
+
+    @Override
+    public int getColor(String key, int defaultColor) {
+        return mPreferences.getInt(key, defaultColor);
+    }
+
+    @Override
+    public void putColors(Map<String, Integer> colors) {
+        SharedPreferences.Editor editor = mPreferences.edit();
+        for (Map.Entry<String, Integer> entry : colors.entrySet()) {
+            editor.putInt(entry.getKey(), entry.getValue());
+        }
+        editor.apply();
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.woalk.apps.lib.colorpicker;
+
+import android.content.res.Resources;
+import android.graphics.drawable.Drawable;
+import android.util.SparseArray;
+
+import java.util.ArrayList;
+
+/**
+ * A cache for the drawables of {@link ColorPickerSwatch}.  The base swatch shape is loaded once
+ * and shared by all swatches through its {@link Drawable.ConstantState}, and
+ * {@link ColorStateDrawable}s of swatches which left the window are pooled by color, so showing
+ * the same palette again does not allocate new drawables.
+ * <br/><br/>
+ * Must only be used from the UI thread.
+ */
+final class SwatchDrawableCache {
+
+    /** The maximum number of drawables kept in the pool. */
+    private static final int MAX_POOL_SIZE = 512;
+
+    private static Drawable.ConstantState sSwatchState;
+    private static int sSwatchDensity;
+
+    private static final SparseArray<ArrayList<ColorStateDrawable>> sPool =
+            new SparseArray<ArrayList<ColorStateDrawable>>();
+    private static int sPoolSize;
+
+    private SwatchDrawableCache() {
+    }
+
+    /**
+     * Returns a drawable showing {@code color}.  A pooled drawable of the same color is preferred,
+     * then any pooled drawable which is changed to the color, before a new one is created.
+     */
+    static ColorStateDrawable obtain(Resources res, int color) {
+        prepare(res);
+
+        int poolIndex = sPool.indexOfKey(color);
+        if (poolIndex < 0 && sPoolSize > 0) {
+            poolIndex = sPool.size() - 1;
+        }
+        if (poolIndex >= 0) {
+            ArrayList<ColorStateDrawable> drawables = sPool.valueAt(poolIndex);
+            ColorStateDrawable drawable = drawables.remove(drawables.size() - 1);
+            if (drawables.isEmpty()) {
+                sPool.removeAt(poolIndex);
+            }
+            sPoolSize--;
+            drawable.setColor(color);
+            return drawable;
+        }
+
+        Drawable[] layers = new Drawable[] {sSwatchState.newDrawable(res)};
+        return new ColorStateDrawable(layers, color);
+    }
+
+    /**
+     * Loads the base swatch shape for the density of {@code res}, if it is not loaded yet, so the
+     * first palette does not have to.
+     */
+    static void prepare(Resources res) {
+        int density = res.getDisplayMetrics().densityDpi;
+        if (sSwatchState == null || sSwatchDensity != density) {
+            // The pooled drawables were created for another density.
+            clear();
+            sSwatchState = res.getDrawable(R.drawable.color_picker_swatch).getConstantState();
+            sSwatchDensity = density;
+        }
+    }
+
+    /**
+     * Puts a drawable which is no longer shown into the pool.
+     */
+    static void recycle(ColorStateDrawable drawable) {
+        if (drawable == null || sPoolSize >= MAX_POOL_SIZE) {
+            return;
+        }
+
+        int color = drawable.getColor();
+        ArrayList<ColorStateDrawable> drawables = sPool.get(color);
+        if (drawables == null) {
+            drawables = new ArrayList<ColorStateDrawable>(1);
+            sPool.put(color, drawables);
+        }
+        drawables.add(drawable);
+        sPoolSize++;
+    }
+
+    /**
+     * Releases all pooled drawables.
+     */
+    static void clear() {
+        sPool.clear();
+        sPoolSize = 0;
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.woalk.apps.lib.colorpicker;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the fixed-point HSV and HSL conversions of {@link ColorMath} against every opaque color.
+ */
+public class ColorMathTest {
+
+    private static final int HUE_STEPS = 1 << 15;
+
+    @Test
+    public void fixedPointRoundTripsEveryColor() {
+        for (int rgb = 0; rgb <= 0xffffff; rgb++) {
+            int color = 0xff000000 | rgb;
+            int hsv = ColorMath.colorToHsvFixed(color);
+            int hsl = ColorMath.colorToHslFixed(color);
+            if (ColorMath.hsvFixedToColor(hsv) != color
+                    || ColorMath.hslFixedToColor(hsl) != color) {
+                assertEquals(Integer.toHexString(color),
+                        Integer.toHexString(ColorMath.hsvFixedToColor(hsv)));
+                assertEquals(Integer.toHexString(color),
+                        Integer.toHexString(ColorMath.hslFixedToColor(hsl)));
+            }
+        }
+    }
+
+    @Test
+    public void fixedPointHueMatchesFloatHue() {
+        float[] hsv = new float[3];
+        for (int rgb = 0; rgb <= 0xffffff; rgb += 0x010305) {
+            int color = 0xff000000 | rgb;
+            ColorMath.colorToHsv(color, hsv);
+            int hue = ColorMath.colorToHsvFixed(color) >>> 17;
+            assertEquals(hue, ColorMath.colorToHslFixed(color) >>> 17);
+            float distance = Math.abs(hue * 360f / HUE_STEPS - hsv[0]);
+            assertTrue(Integer.toHexString(color),
+                    Math.min(distance, 360f - distance) <= 360f / (2 * HUE_STEPS) + 1e-3f);
+        }
+    }
+
+    @Test
+    public void packsFixedPointComponents() {
+        // Red: hue 0, full saturation, value 510 and lightness 255.
+        assertEquals(0xff << 9 | 510, ColorMath.colorToHsvFixed(0xffff0000));
+        assertEquals(0xff << 9 | 255, ColorMath.colorToHslFixed(0xffff0000));
+        // Grays have no hue or saturation.
+        assertEquals(2 * 0x80, ColorMath.colorToHsvFixed(0xff808080));
+        assertEquals(2 * 0x80, ColorMath.colorToHslFixed(0xff808080));
+        // Out of range value and lightness are clamped, alpha is kept.
+        assertEquals(0x80ff0000, ColorMath.hsvFixedToColor(0x80, 0xff << 9 | 0x1ff));
+        assertEquals(0xffffffff, ColorMath.hslFixedToColor(0x1ff));
+    }
+
+    @Test
+    public void batchesMatchSingleConversions() {
+        int[] colors = {0xff000000, 0xffe53935, 0x80123456, 0xff00ff00, 0xffffffff};
+        int[] hsv = new int[colors.length];
+        int[] hsl = new int[colors.length];
+        int[] fromHsv = new int[colors.length];
+        int[] fromHsl = new int[colors.length];
+        ColorMath.colorsToHsvFixed(colors, hsv);
+        ColorMath.colorsToHslFixed(colors, hsl);
+        ColorMath.hsvFixedToColors(hsv, fromHsv);
+        ColorMath.hslFixedToColors(hsl, fromHsl);
+
+        int[] opaque = new int[colors.length];
+        for (int i = 0; i < colors.length; i++) {
+            assertEquals(ColorMath.colorToHsvFixed(colors[i]), hsv[i]);
+            assertEquals(ColorMath.colorToHslFixed(colors[i]), hsl[i]);
+            opaque[i] = 0xff000000 | colors[i];
+        }
+        assertArrayEquals(opaque, fromHsv);
+        assertArrayEquals(opaque, fromHsl);
+    }
+}
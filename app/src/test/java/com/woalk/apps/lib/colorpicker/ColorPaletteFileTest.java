@@ -0,0 +1,199 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.woalk.apps.lib.colorpicker;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Writes palettes with {@link ColorPaletteFile} and reads them back.
+ */
+public class ColorPaletteFileTest {
+
+    private static final int HEADER_SIZE = 16;
+
+    private static final int[] COLORS = {
+            0xff000000, 0xffffffff, 0x80ff8800, 0x00000000, 0xff33b5e5, 0x12345678};
+    private static final String[] NAMES = {
+            "black", "white", "Gr\u00fcn", null, "", "\u8d64\u3044 \ud83c\udfa8"};
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void roundTripColorsNamesAndSortKeys() throws IOException {
+        File file = mFolder.newFile();
+        ColorPaletteFile.write(file, COLORS, NAMES, true);
+        ColorPaletteFile palette = ColorPaletteFile.open(file);
+
+        assertEquals(COLORS.length, palette.getCount());
+        assertEquals(ColorPaletteFile.FLAG_NAMES | ColorPaletteFile.FLAG_SORT_KEYS,
+                palette.getFlags());
+        assertArrayEquals(COLORS, palette.getColors());
+        assertTrue(palette.hasNames());
+        assertTrue(palette.hasSortKeys());
+        for (int i = 0; i < COLORS.length; i++) {
+            assertEquals(COLORS[i], palette.getColor(i));
+            // null names are written as empty names.
+            assertEquals(NAMES[i] != null ? NAMES[i] : "", palette.getName(i));
+            assertEquals(HsvColorComparator.sortKey(COLORS[i]), palette.getSortKey(i));
+        }
+    }
+
+    @Test
+    public void roundTripWithoutNamesAndSortKeys() throws IOException {
+        File file = mFolder.newFile();
+        ColorPaletteFile.write(file, COLORS, null, false);
+        ColorPaletteFile palette = ColorPaletteFile.open(file);
+
+        assertEquals(0, palette.getFlags());
+        assertArrayEquals(COLORS, palette.getColors());
+        assertFalse(palette.hasNames());
+        assertNull(palette.getName(0));
+        assertFalse(palette.hasSortKeys());
+        assertEquals(HsvColorComparator.sortKey(COLORS[2]), palette.getSortKey(2));
+        assertEquals(HEADER_SIZE + 4 * COLORS.length, file.length());
+    }
+
+    @Test
+    public void roundTripEmptyPalette() throws IOException {
+        ColorPaletteFile palette = ColorPaletteFile.wrap(ByteBuffer.wrap(
+                write(new int[0], new String[0], true)));
+
+        assertEquals(0, palette.getCount());
+        assertEquals(0, palette.getColors().length);
+        assertTrue(palette.hasNames());
+    }
+
+    @Test
+    public void wrapReadsFromBufferPosition() throws IOException {
+        byte[] bytes = write(COLORS, NAMES, false);
+        byte[] padded = new byte[bytes.length + 3];
+        System.arraycopy(bytes, 0, padded, 3, bytes.length);
+        ByteBuffer buffer = ByteBuffer.wrap(padded);
+        buffer.position(3);
+        ColorPaletteFile palette = ColorPaletteFile.wrap(buffer);
+
+        assertArrayEquals(COLORS, palette.getColors());
+        assertEquals("Gr\u00fcn", palette.getName(2));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsTruncatedHeader() throws IOException {
+        byte[] bytes = write(COLORS, null, false);
+        ColorPaletteFile.wrap(ByteBuffer.wrap(Arrays.copyOf(bytes, HEADER_SIZE - 1)));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsWrongMagic() throws IOException {
+        byte[] bytes = write(COLORS, null, false);
+        bytes[0] = 'X';
+        ColorPaletteFile.wrap(ByteBuffer.wrap(bytes));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsUnsupportedVersion() throws IOException {
+        byte[] bytes = write(COLORS, null, false);
+        ByteBuffer.wrap(bytes).putShort(4, (short) (ColorPaletteFile.VERSION + 1));
+        ColorPaletteFile.wrap(ByteBuffer.wrap(bytes));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsNegativeCount() throws IOException {
+        byte[] bytes = write(COLORS, null, false);
+        ByteBuffer.wrap(bytes).putInt(8, -1);
+        ColorPaletteFile.wrap(ByteBuffer.wrap(bytes));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsCountLargerThanFile() throws IOException {
+        byte[] bytes = write(COLORS, null, true);
+        ByteBuffer.wrap(bytes).putInt(8, Integer.MAX_VALUE);
+        ColorPaletteFile.wrap(ByteBuffer.wrap(bytes));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsTruncatedColors() throws IOException {
+        byte[] bytes = write(COLORS, null, false);
+        ColorPaletteFile.wrap(ByteBuffer.wrap(Arrays.copyOf(bytes, bytes.length - 1)));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsTruncatedNames() throws IOException {
+        byte[] bytes = write(COLORS, NAMES, false);
+        File file = mFolder.newFile();
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(bytes, 0, bytes.length - 1);
+        } finally {
+            out.close();
+        }
+        ColorPaletteFile.open(file);
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsDecreasingNameOffsets() throws IOException {
+        byte[] bytes = write(COLORS, NAMES, false);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        // The second name would end before it starts.
+        buffer.putInt(getNameOffsetsPosition(COLORS.length) + 4, 2);
+        buffer.putInt(getNameOffsetsPosition(COLORS.length) + 8, 1);
+        ColorPaletteFile.wrap(buffer);
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsNegativeNameOffset() throws IOException {
+        byte[] bytes = write(COLORS, NAMES, false);
+        ByteBuffer.wrap(bytes).putInt(getNameOffsetsPosition(COLORS.length), -4);
+        ColorPaletteFile.wrap(ByteBuffer.wrap(bytes));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsNameOffsetOutOfRange() throws IOException {
+        byte[] bytes = write(COLORS, NAMES, false);
+        ByteBuffer.wrap(bytes).putInt(getNameOffsetsPosition(COLORS.length) + 4, 1 << 20);
+        ColorPaletteFile.wrap(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Returns the position of the name offsets in a file without sort keys.
+     */
+    private static int getNameOffsetsPosition(int count) {
+        return HEADER_SIZE + 4 * count;
+    }
+
+    private static byte[] write(int[] colors, String[] names, boolean sortKeys)
+            throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ColorPaletteFile.write(out, colors, names, sortKeys);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.woalk.apps.lib.colorpicker;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.os.SystemClock;
+import android.view.KeyEvent;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.accessibility.AccessibilityNodeProvider;
+
+import com.woalk.apps.lib.colorpicker.ColorPickerSwatch.OnColorSelectedListener;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares {@link ColorPickerCanvasPalette} with the view tree of {@link ColorPickerPalette} for
+ * a large palette.
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class ColorPickerCanvasPaletteTest {
+
+    private static final int COLUMNS = 5;
+    private static final int COLOR_COUNT = 250;
+
+    private Context mContext;
+    private int[] mColors;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        mColors = new int[COLOR_COUNT];
+        for (int i = 0; i < COLOR_COUNT; i++) {
+            mColors[i] = 0xff000000 | i * 0x010101;
+        }
+    }
+
+    @Test
+    public void drawsAllSwatchesInOneView() {
+        ColorPickerPalette table = createTablePalette();
+        ColorPickerCanvasPalette canvas = createCanvasPalette(null);
+
+        // A row per five colors, and a swatch with two images per color.
+        assertEquals(1 + COLOR_COUNT / COLUMNS + 3 * COLOR_COUNT, countViews(table));
+        assertEquals(1, countViews(canvas));
+    }
+
+    @Test
+    public void measuresAndLaysOutOnlyItself() {
+        ColorPickerPalette table = createTablePalette();
+        ColorPickerCanvasPalette canvas = createCanvasPalette(null);
+        measureAndLayout(table);
+        measureAndLayout(canvas);
+
+        // Every view of the table takes part in the measure and layout passes.
+        assertEquals(countViews(table), countLaidOutViews(table));
+        assertEquals(1, countLaidOutViews(canvas));
+
+        PaletteGeometry geometry = createGeometry();
+        geometry.setColorCount(COLOR_COUNT);
+        assertEquals(geometry.getWidth(), canvas.getMeasuredWidth());
+        assertEquals(geometry.getHeight(), canvas.getMeasuredHeight());
+    }
+
+    @Test
+    public void tapSelectsSwatchAndPerformsClick() {
+        final int[] selectedColor = new int[1];
+        ColorPickerCanvasPalette canvas = createCanvasPalette(new OnColorSelectedListener() {
+            @Override
+            public void onColorSelected(int color) {
+                selectedColor[0] = color;
+            }
+        });
+        final int[] clicks = new int[1];
+        canvas.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                clicks[0]++;
+            }
+        });
+        measureAndLayout(canvas);
+
+        PaletteGeometry geometry = createGeometry();
+        geometry.setColorCount(COLOR_COUNT);
+        // The ninth color, in the second row which is filled from the end.
+        int index = 8;
+        float center = geometry.getSwatchLength() / 2f;
+        tap(canvas, geometry.getSwatchLeft(index) + center, geometry.getSwatchTop(index) + center);
+
+        assertEquals(mColors[index], selectedColor[0]);
+        assertEquals(1, clicks[0]);
+
+        // Margins are not part of a swatch.
+        selectedColor[0] = 0;
+        tap(canvas, geometry.getSwatchLeft(index) - 1, geometry.getSwatchTop(index) + center);
+
+        assertEquals(0, selectedColor[0]);
+        assertEquals(1, clicks[0]);
+    }
+
+    @Test
+    public void exposesEverySwatchOfPartialOddLastRow() {
+        // Four columns and six colors: the second row is filled from the end and its first two
+        // cells are blank.
+        int[] colors = new int[6];
+        for (int i = 0; i < colors.length; i++) {
+            colors[i] = 0xff000000 | i * 0x101010;
+        }
+        ColorPickerCanvasPalette canvas = new ColorPickerCanvasPalette(mContext);
+        canvas.init(ColorPickerDialog.SIZE_LARGE, 4, null);
+        canvas.drawPalette(colors, colors[0]);
+        measureAndLayout(canvas);
+
+        int[] ids = canvas.getVirtualViewIds();
+        assertArrayEquals(new int[] {0, 1, 2, 3, 5, 4}, ids);
+        AccessibilityNodeProvider provider = canvas.getAccessibilityNodeProvider();
+        for (int id : ids) {
+            assertNotNull(provider.createAccessibilityNodeInfo(id));
+        }
+    }
+
+    @Test
+    public void arrowKeysMoveFocusAndEnterSelects() {
+        final int[] selectedColor = new int[1];
+        ColorPickerCanvasPalette canvas = createCanvasPalette(new OnColorSelectedListener() {
+            @Override
+            public void onColorSelected(int color) {
+                selectedColor[0] = color;
+            }
+        });
+        measureAndLayout(canvas);
+        // The selected color is focused first.
+        canvas.onFocusChanged(true, View.FOCUS_DOWN, null);
+
+        assertTrue(pressKey(canvas, KeyEvent.KEYCODE_DPAD_RIGHT));
+        assertTrue(pressKey(canvas, KeyEvent.KEYCODE_DPAD_RIGHT));
+        // The third column of the second row, which is filled from the end.
+        assertTrue(pressKey(canvas, KeyEvent.KEYCODE_DPAD_DOWN));
+        assertTrue(pressKey(canvas, KeyEvent.KEYCODE_ENTER));
+        assertEquals(mColors[7], selectedColor[0]);
+
+        assertTrue(pressKey(canvas, KeyEvent.KEYCODE_DPAD_UP));
+        assertTrue(pressKey(canvas, KeyEvent.KEYCODE_DPAD_LEFT));
+        assertTrue(pressKey(canvas, KeyEvent.KEYCODE_DPAD_LEFT));
+        // There is no swatch above or left of the first one, the focus may leave the palette.
+        assertFalse(pressKey(canvas, KeyEvent.KEYCODE_DPAD_UP));
+        assertFalse(pressKey(canvas, KeyEvent.KEYCODE_DPAD_LEFT));
+        assertTrue(pressKey(canvas, KeyEvent.KEYCODE_DPAD_CENTER));
+        assertEquals(mColors[0], selectedColor[0]);
+    }
+
+    private ColorPickerPalette createTablePalette() {
+        ColorPickerPalette palette = new ColorPickerPalette(mContext);
+        palette.init(ColorPickerDialog.SIZE_LARGE, COLUMNS, null);
+        palette.drawPalette(mColors, mColors[0]);
+        return palette;
+    }
+
+    private ColorPickerCanvasPalette createCanvasPalette(OnColorSelectedListener listener) {
+        ColorPickerCanvasPalette palette = new ColorPickerCanvasPalette(mContext);
+        palette.init(ColorPickerDialog.SIZE_LARGE, COLUMNS, listener);
+        palette.drawPalette(mColors, mColors[0]);
+        return palette;
+    }
+
+    private PaletteGeometry createGeometry() {
+        Resources res = mContext.getResources();
+        return new PaletteGeometry(COLUMNS,
+                res.getDimensionPixelSize(R.dimen.color_swatch_large),
+                res.getDimensionPixelSize(R.dimen.color_swatch_margins_large));
+    }
+
+    private static void measureAndLayout(View view) {
+        int spec = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
+        view.measure(spec, spec);
+        view.layout(0, 0, view.getMeasuredWidth(), view.getMeasuredHeight());
+    }
+
+    /**
+     * Counts the views in the tree of {@code view} which were measured and laid out.
+     */
+    private static int countLaidOutViews(View view) {
+        int count = view.isLayoutRequested() ? 0 : 1;
+        if (view instanceof ViewGroup) {
+            ViewGroup group = (ViewGroup) view;
+            for (int i = 0; i < group.getChildCount(); i++) {
+                count += countLaidOutViews(group.getChildAt(i));
+            }
+        }
+        return count;
+    }
+
+    private static int countViews(View view) {
+        int count = 1;
+        if (view instanceof ViewGroup) {
+            ViewGroup group = (ViewGroup) view;
+            for (int i = 0; i < group.getChildCount(); i++) {
+                count += countViews(group.getChildAt(i));
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Presses and releases a key.
+     * @return Whether the palette handled the key press.
+     */
+    private static boolean pressKey(View view, int keyCode) {
+        boolean handled = view.onKeyDown(keyCode, new KeyEvent(KeyEvent.ACTION_DOWN, keyCode));
+        view.onKeyUp(keyCode, new KeyEvent(KeyEvent.ACTION_UP, keyCode));
+        return handled;
+    }
+
+    private static void tap(View view, float x, float y) {
+        long time = SystemClock.uptimeMillis();
+        MotionEvent down = MotionEvent.obtain(time, time, MotionEvent.ACTION_DOWN, x, y, 0);
+        MotionEvent up = MotionEvent.obtain(time, time + 50, MotionEvent.ACTION_UP, x, y, 0);
+        view.dispatchTouchEvent(down);
+        view.dispatchTouchEvent(up);
+        down.recycle();
+        up.recycle();
+    }
+}
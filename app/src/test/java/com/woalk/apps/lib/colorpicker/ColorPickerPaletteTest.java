@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.woalk.apps.lib.colorpicker;
+
+import android.view.View;
+import android.widget.TableRow;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Counts the views {@link ColorPickerPalette#drawPalette(int[], int)} creates when the palette is
+ * drawn again, as reported to its {@link PaletteMetricsListener}.
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class ColorPickerPaletteTest {
+
+    private static final int COLUMNS = 5;
+
+    private ColorPickerPalette mPalette;
+    private CountingListener mListener;
+    private int[] mColors;
+
+    @Before
+    public void setUp() {
+        mPalette = new ColorPickerPalette(RuntimeEnvironment.application);
+        mPalette.init(ColorPickerDialog.SIZE_SMALL, COLUMNS, null);
+        mListener = new CountingListener();
+        mPalette.setMetricsListener(mListener);
+
+        mColors = new int[20];
+        for (int i = 0; i < mColors.length; i++) {
+            mColors[i] = 0xff000000 | i * 0x010101;
+        }
+        mPalette.drawPalette(mColors, mColors[0]);
+        assertEquals(mColors.length, mListener.swatchesCreated);
+    }
+
+    @Test
+    public void sameColorsCreateNoViews() {
+        TableRow firstRow = (TableRow) mPalette.getChildAt(0);
+        mPalette.drawPalette(mColors.clone(), mColors[0]);
+
+        assertEquals(0, mListener.swatchesCreated);
+        assertEquals(0, mListener.blankSpaces);
+        assertSame(firstRow, mPalette.getChildAt(0));
+    }
+
+    @Test
+    public void newSelectionCreatesNoViews() {
+        mPalette.drawPalette(mColors, mColors[7]);
+
+        assertEquals(0, mListener.swatchesCreated);
+        assertEquals(0, mListener.blankSpaces);
+        assertEquals(1, countCheckedSwatches());
+    }
+
+    @Test
+    public void changedColorCreatesNoViews() {
+        int[] colors = mColors.clone();
+        colors[12] = 0xffff0000;
+        mPalette.drawPalette(colors, colors[12]);
+
+        assertEquals(0, mListener.swatchesCreated);
+        assertEquals(0, mListener.blankSpaces);
+        assertEquals(1, countCheckedSwatches());
+    }
+
+    @Test
+    public void differentLengthCreatesOnlyNewSwatches() {
+        int[] longer = Arrays.copyOf(mColors, mColors.length + 3);
+        for (int i = mColors.length; i < longer.length; i++) {
+            longer[i] = 0xff800000 | i;
+        }
+        mPalette.drawPalette(longer, longer[0]);
+
+        assertEquals(3, mListener.swatchesCreated);
+        // The new last row is filled with two blank spaces.
+        assertEquals(2, mListener.blankSpaces);
+        assertEquals(5, mListener.rows);
+
+        int[] shorter = Arrays.copyOf(mColors, mColors.length - 4);
+        mPalette.drawPalette(shorter, shorter[0]);
+
+        assertEquals(0, mListener.swatchesCreated);
+        // The swatches of the last row are replaced, the previous blank spaces are removed.
+        assertEquals(4, mListener.blankSpaces);
+        assertEquals(4, mListener.rows);
+    }
+
+    private int countCheckedSwatches() {
+        int checked = 0;
+        for (int i = 0; i < mPalette.getChildCount(); i++) {
+            TableRow row = (TableRow) mPalette.getChildAt(i);
+            for (int j = 0; j < row.getChildCount(); j++) {
+                View child = row.getChildAt(j);
+                if (child instanceof ColorPickerSwatch && child.findViewById(
+                        R.id.color_picker_checkmark).getVisibility() == View.VISIBLE) {
+                    checked++;
+                }
+            }
+        }
+        return checked;
+    }
+
+    private static class CountingListener implements PaletteMetricsListener {
+
+        int swatchesCreated;
+        int blankSpaces;
+        int rows;
+
+        @Override
+        public void onDialogInflated(long durationNanos) {
+        }
+
+        @Override
+        public void onPaletteDrawn(long durationNanos, int swatchesCreated, int rows,
+                int blankSpaces) {
+            this.swatchesCreated = swatchesCreated;
+            this.blankSpaces = blankSpaces;
+            this.rows = rows;
+        }
+
+        @Override
+        public void onFirstMeasure(long durationNanos) {
+        }
+
+        @Override
+        public void onFirstLayout(long durationNanos) {
+        }
+
+        @Override
+        public void onFirstDraw(long durationNanos) {
+        }
+
+        @Override
+        public void onColorSelected(long tapToSelectMillis) {
+        }
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.woalk.apps.lib.colorpicker;
+
+import android.app.Activity;
+import android.os.Bundle;
+import android.widget.EditText;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.lang.reflect.Field;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the dialog of a {@link ColorPreference} with {@code picker_colors} keeps only the
+ * palette reference in its instance state, and starts over when it is shown again.
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class ColorPreferenceTest {
+
+    /** The id of the palette resource, only ever loaded from the {@link PaletteCache}. */
+    private static final int COLORS_RES_ID = 0x7f7f0001;
+    private static final int COLOR_COUNT = 100;
+
+    private Activity mActivity;
+    private ColorPreference mPreference;
+
+    @Before
+    public void setUp() throws Exception {
+        mActivity = Robolectric.buildActivity(Activity.class).create().start().resume().get();
+
+        int[] colors = new int[COLOR_COUNT];
+        for (int i = 0; i < colors.length; i++) {
+            colors[i] = 0xff000000 | i * 0x020202;
+        }
+        PaletteCache.put(mActivity.getResources(), COLORS_RES_ID, colors);
+
+        // As if the preference was inflated with app:picker_colors.
+        mPreference = new ColorPreference(mActivity, null);
+        setField("mColorsResId", COLORS_RES_ID);
+        setField("mColors", colors);
+    }
+
+    @After
+    public void tearDown() {
+        PaletteCache.clear();
+    }
+
+    @Test
+    public void dialogStateReferencesPalette() {
+        ColorPickerDialog dialog = showDialog();
+
+        assertReferencesPalette(dialog);
+    }
+
+    @Test
+    public void dialogStateReferencesPaletteWhenShownAgain() {
+        ColorPickerDialog dialog = showDialog();
+        dialog.dismiss();
+        mActivity.getFragmentManager().executePendingTransactions();
+
+        assertSame(dialog, showDialog());
+        assertReferencesPalette(dialog);
+    }
+
+    @Test
+    public void reusedDialogShowsAllColorsAgain() {
+        ColorPickerDialog dialog = mPreference.getColorPickerDialog();
+        dialog.setFilterEnabled(true);
+        RowCountingListener listener = new RowCountingListener();
+        dialog.setMetricsListener(listener);
+        showDialog();
+        // Only 0xff020202 matches.
+        getFilterField(dialog).setText("020202");
+        assertEquals(1, listener.rows);
+        dialog.dismiss();
+        mActivity.getFragmentManager().executePendingTransactions();
+
+        assertSame(dialog, showDialog());
+        assertEquals("", getFilterField(dialog).getText().toString());
+        // The preference shows two columns.
+        assertEquals(COLOR_COUNT / 2, listener.rows);
+    }
+
+    private static EditText getFilterField(ColorPickerDialog dialog) {
+        return (EditText) dialog.getDialog().findViewById(R.id.color_picker_filter);
+    }
+
+    private ColorPickerDialog showDialog() {
+        mPreference.onClick();
+        mActivity.getFragmentManager().executePendingTransactions();
+        ColorPickerDialog dialog = mPreference.getColorPickerDialog();
+        assertTrue(dialog.isAdded());
+        return dialog;
+    }
+
+    private static void assertReferencesPalette(ColorPickerDialog dialog) {
+        Bundle state = new Bundle();
+        dialog.onSaveInstanceState(state);
+
+        assertTrue(state.getBoolean(ColorPickerDialog.KEY_COLORS_REFERENCED));
+        assertFalse(state.containsKey(ColorPickerDialog.KEY_COLORS));
+    }
+
+    private static class RowCountingListener implements PaletteMetricsListener {
+
+        int rows;
+
+        @Override
+        public void onDialogInflated(long durationNanos) {
+        }
+
+        @Override
+        public void onPaletteDrawn(long durationNanos, int swatchesCreated, int rows,
+                int blankSpaces) {
+            this.rows = rows;
+        }
+
+        @Override
+        public void onFirstMeasure(long durationNanos) {
+        }
+
+        @Override
+        public void onFirstLayout(long durationNanos) {
+        }
+
+        @Override
+        public void onFirstDraw(long durationNanos) {
+        }
+
+        @Override
+        public void onColorSelected(long tapToSelectMillis) {
+        }
+    }
+
+    private void setField(String name, Object value) throws Exception {
+        Field field = ColorPreference.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(mPreference, value);
+    }
+}
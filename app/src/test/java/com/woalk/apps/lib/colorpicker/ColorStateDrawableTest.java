@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.woalk.apps.lib.colorpicker;
+
+import android.content.res.Resources;
+import android.graphics.ColorFilter;
+import android.graphics.drawable.Drawable;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Checks that the state changes of {@link ColorStateDrawable} don't allocate: the color filters
+ * are created once per color, and only set again when the pressed or focused state flips.
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class ColorStateDrawableTest {
+
+    private static final int[] STATE_PRESSED = {
+            android.R.attr.state_enabled, android.R.attr.state_pressed};
+    private static final int[] STATE_FOCUSED = {
+            android.R.attr.state_enabled, android.R.attr.state_focused};
+    private static final int[] STATE_ENABLED = {android.R.attr.state_enabled};
+
+    private static final int CHANGES = 100;
+
+    private Resources mResources;
+
+    @Before
+    public void setUp() {
+        mResources = RuntimeEnvironment.application.getResources();
+    }
+
+    @Test
+    public void pressedStateFlipsReuseColorFilters() {
+        CountingDrawable drawable = createDrawable(0xff336699);
+        drawable.setState(STATE_PRESSED);
+        ColorFilter pressedFilter = drawable.mColorFilter;
+        drawable.setState(STATE_ENABLED);
+        ColorFilter filter = drawable.mColorFilter;
+        assertNotNull(pressedFilter);
+        assertNotNull(filter);
+        assertNotSame(pressedFilter, filter);
+
+        drawable.mSetColorFilterCalls = 0;
+        for (int i = 0; i < CHANGES; i++) {
+            drawable.setState(STATE_PRESSED);
+            assertSame(pressedFilter, drawable.mColorFilter);
+            drawable.setState(STATE_ENABLED);
+            assertSame(filter, drawable.mColorFilter);
+        }
+
+        // One call per flip, with the filters created before.
+        assertEquals(2 * CHANGES, drawable.mSetColorFilterCalls);
+    }
+
+    @Test
+    public void stateChangesWithoutFlipDoNotSetColorFilter() {
+        CountingDrawable drawable = createDrawable(0xff336699);
+        drawable.setState(STATE_PRESSED);
+        ColorFilter pressedFilter = drawable.mColorFilter;
+
+        drawable.mSetColorFilterCalls = 0;
+        for (int i = 0; i < CHANGES; i++) {
+            drawable.setState(STATE_FOCUSED);
+            drawable.setState(STATE_PRESSED);
+        }
+
+        // Pressed and focused look the same, so the color filter is not set again.
+        assertEquals(0, drawable.mSetColorFilterCalls);
+        assertSame(pressedFilter, drawable.mColorFilter);
+    }
+
+    @Test
+    public void setColorReplacesColorFilters() {
+        CountingDrawable drawable = createDrawable(0xff336699);
+        drawable.setState(STATE_ENABLED);
+        ColorFilter filter = drawable.mColorFilter;
+
+        drawable.mSetColorFilterCalls = 0;
+        drawable.setColor(0xff336699);
+        assertEquals(0, drawable.mSetColorFilterCalls);
+
+        drawable.setColor(0xff996633);
+        assertEquals(1, drawable.mSetColorFilterCalls);
+        assertNotSame(filter, drawable.mColorFilter);
+    }
+
+    private CountingDrawable createDrawable(int color) {
+        return new CountingDrawable(new Drawable[] {
+                mResources.getDrawable(R.drawable.color_picker_swatch)}, color);
+    }
+
+    /**
+     * Records the color filters set on the drawable.
+     */
+    private static class CountingDrawable extends ColorStateDrawable {
+
+        ColorFilter mColorFilter;
+        int mSetColorFilterCalls;
+
+        CountingDrawable(Drawable[] layers, int color) {
+            super(layers, color);
+        }
+
+        @Override
+        public void setColorFilter(ColorFilter cf) {
+            mColorFilter = cf;
+            mSetColorFilterCalls++;
+            super.setColorFilter(cf);
+        }
+    }
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.woalk.apps.lib.colorpicker;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks the serpentine layout and hit-testing of {@link PaletteGeometry} for palettes of four
+ * columns whose last row is even- or odd-numbered, full or partial.
+ */
+public class PaletteGeometryTest {
+
+    private static final int COLUMNS = 4;
+    private static final int SWATCH_LENGTH = 10;
+    private static final int MARGIN = 1;
+    private static final int PADDING_LEFT = 3;
+    private static final int PADDING_TOP = 5;
+
+    @Test
+    public void fullEvenLastRow() {
+        PaletteGeometry geometry = createGeometry(12, false);
+
+        assertEquals(3, geometry.getRowCount());
+        assertEquals(0, geometry.getBlankCount());
+        assertColumns(geometry, 0, 1, 2, 3, 3, 2, 1, 0, 0, 1, 2, 3);
+        assertReadingOrder(geometry, 0, 1, 2, 3, 7, 6, 5, 4, 8, 9, 10, 11);
+        assertLayoutConsistent(geometry);
+    }
+
+    @Test
+    public void partialEvenLastRow() {
+        PaletteGeometry geometry = createGeometry(10, false);
+
+        assertEquals(3, geometry.getRowCount());
+        assertEquals(2, geometry.getBlankCount());
+        assertColumns(geometry, 0, 1, 2, 3, 3, 2, 1, 0, 0, 1);
+        assertEquals(-1, geometry.getIndex(2, 2));
+        assertEquals(-1, geometry.getIndex(2, 3));
+        assertReadingOrder(geometry, 0, 1, 2, 3, 7, 6, 5, 4, 8, 9, -1, -1);
+        assertLayoutConsistent(geometry);
+    }
+
+    @Test
+    public void fullOddLastRow() {
+        PaletteGeometry geometry = createGeometry(8, false);
+
+        assertEquals(2, geometry.getRowCount());
+        assertEquals(0, geometry.getBlankCount());
+        assertColumns(geometry, 0, 1, 2, 3, 3, 2, 1, 0);
+        assertReadingOrder(geometry, 0, 1, 2, 3, 7, 6, 5, 4);
+        assertLayoutConsistent(geometry);
+    }
+
+    @Test
+    public void partialOddLastRow() {
+        PaletteGeometry geometry = createGeometry(6, false);
+
+        assertEquals(2, geometry.getRowCount());
+        assertEquals(2, geometry.getBlankCount());
+        // The last row is filled from the end, so its blank cells are at the start.
+        assertColumns(geometry, 0, 1, 2, 3, 3, 2);
+        assertEquals(-1, geometry.getIndex(1, 0));
+        assertEquals(-1, geometry.getIndex(1, 1));
+        assertReadingOrder(geometry, 0, 1, 2, 3, -1, -1, 5, 4);
+        assertLayoutConsistent(geometry);
+    }
+
+    @Test
+    public void fullEvenLastRowRtl() {
+        PaletteGeometry geometry = createGeometry(12, true);
+
+        assertColumns(geometry, 3, 2, 1, 0, 0, 1, 2, 3, 3, 2, 1, 0);
+        assertReadingOrder(geometry, 0, 1, 2, 3, 7, 6, 5, 4, 8, 9, 10, 11);
+        assertLayoutConsistent(geometry);
+    }
+
+    @Test
+    public void partialEvenLastRowRtl() {
+        PaletteGeometry geometry = createGeometry(10, true);
+
+        assertColumns(geometry, 3, 2, 1, 0, 0, 1, 2, 3, 3, 2);
+        assertEquals(-1, geometry.getIndex(2, 0));
+        assertEquals(-1, geometry.getIndex(2, 1));
+        assertReadingOrder(geometry, 0, 1, 2, 3, 7, 6, 5, 4, 8, 9, -1, -1);
+        assertLayoutConsistent(geometry);
+    }
+
+    @Test
+    public void fullOddLastRowRtl() {
+        PaletteGeometry geometry = createGeometry(8, true);
+
+        assertColumns(geometry, 3, 2, 1, 0, 0, 1, 2, 3);
+        assertReadingOrder(geometry, 0, 1, 2, 3, 7, 6, 5, 4);
+        assertLayoutConsistent(geometry);
+    }
+
+    @Test
+    public void partialOddLastRowRtl() {
+        PaletteGeometry geometry = createGeometry(6, true);
+
+        assertColumns(geometry, 3, 2, 1, 0, 0, 1);
+        assertEquals(-1, geometry.getIndex(1, 2));
+        assertEquals(-1, geometry.getIndex(1, 3));
+        assertReadingOrder(geometry, 0, 1, 2, 3, -1, -1, 5, 4);
+        assertLayoutConsistent(geometry);
+    }
+
+    @Test
+    public void cellsOutsideOfPaletteAreEmpty() {
+        PaletteGeometry geometry = createGeometry(6, false);
+
+        assertEquals(-1, geometry.getIndex(-1, 0));
+        assertEquals(-1, geometry.getIndex(0, -1));
+        assertEquals(-1, geometry.getIndex(0, COLUMNS));
+        assertEquals(-1, geometry.getIndex(2, 0));
+        assertEquals(-1, geometry.getIndexInReadingOrder(-1));
+        assertEquals(-1, geometry.getIndexInReadingOrder(2 * COLUMNS));
+        assertEquals(-1, geometry.getIndexAt(PADDING_LEFT - 1, PADDING_TOP + MARGIN));
+        assertEquals(-1, geometry.getIndexAt(PADDING_LEFT + MARGIN, PADDING_TOP - 1));
+        assertEquals(-1, geometry.getIndexAt(PADDING_LEFT + geometry.getWidth() + MARGIN,
+                PADDING_TOP + MARGIN));
+        assertEquals(-1, geometry.getIndexAt(PADDING_LEFT + MARGIN,
+                PADDING_TOP + geometry.getHeight() + MARGIN));
+    }
+
+    @Test
+    public void emptyPalette() {
+        PaletteGeometry geometry = createGeometry(0, false);
+
+        assertEquals(0, geometry.getRowCount());
+        assertEquals(0, geometry.getBlankCount());
+        assertEquals(0, geometry.getHeight());
+        assertEquals(-1, geometry.getIndex(0, 0));
+        assertEquals(-1, geometry.getIndexInReadingOrder(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsZeroColumns() {
+        new PaletteGeometry(0, SWATCH_LENGTH, MARGIN);
+    }
+
+    private static PaletteGeometry createGeometry(int colorCount, boolean rtl) {
+        PaletteGeometry geometry = new PaletteGeometry(COLUMNS, SWATCH_LENGTH, MARGIN);
+        geometry.setColorCount(colorCount);
+        geometry.setRtl(rtl);
+        geometry.setPadding(PADDING_LEFT, PADDING_TOP);
+        return geometry;
+    }
+
+    /**
+     * Checks the columns, counted from the left, of all colors in index order.
+     */
+    private static void assertColumns(PaletteGeometry geometry, int... columns) {
+        assertEquals(columns.length, geometry.getColorCount());
+        for (int index = 0; index < columns.length; index++) {
+            assertEquals("Column of color " + index, columns[index], geometry.getColumn(index));
+        }
+    }
+
+    /**
+     * Checks the colors of all cells in reading order, {@code -1} for blank cells.
+     */
+    private static void assertReadingOrder(PaletteGeometry geometry, int... indices) {
+        assertEquals(indices.length, geometry.getRowCount() * geometry.getColumnCount());
+        for (int position = 0; position < indices.length; position++) {
+            int index = indices[position];
+            assertEquals("Color at position " + position, index,
+                    geometry.getIndexInReadingOrder(position));
+            if (index >= 0) {
+                assertEquals(position + 1, geometry.getAccessibilityIndex(index));
+            }
+        }
+    }
+
+    /**
+     * Checks that {@link PaletteGeometry#getIndex(int, int)}, the swatch bounds and
+     * {@link PaletteGeometry#getIndexAt(float, float)} agree on every color, and that no point
+     * in a margin or a blank cell hits a swatch.
+     */
+    private static void assertLayoutConsistent(PaletteGeometry geometry) {
+        int cell = geometry.getCellLength();
+        int colorCount = geometry.getColorCount();
+        for (int index = 0; index < colorCount; index++) {
+            int row = geometry.getRow(index);
+            int column = geometry.getColumn(index);
+            assertEquals(index, geometry.getIndex(row, column));
+
+            int left = geometry.getSwatchLeft(index);
+            int top = geometry.getSwatchTop(index);
+            assertEquals(PADDING_LEFT + column * cell + MARGIN, left);
+            assertEquals(PADDING_TOP + row * cell + MARGIN, top);
+            assertEquals(row, geometry.getRowAt(top));
+
+            float center = SWATCH_LENGTH / 2f;
+            assertEquals(index, geometry.getIndexAt(left, top));
+            assertEquals(index, geometry.getIndexAt(left + center, top + center));
+            assertEquals(index, geometry.getIndexAt(left + SWATCH_LENGTH - 0.5f,
+                    top + SWATCH_LENGTH - 0.5f));
+            assertEquals(-1, geometry.getIndexAt(left - 0.5f, top + center));
+            assertEquals(-1, geometry.getIndexAt(left + center, top - 0.5f));
+            assertEquals(-1, geometry.getIndexAt(left + SWATCH_LENGTH, top + center));
+            assertEquals(-1, geometry.getIndexAt(left + center, top + SWATCH_LENGTH));
+        }
+
+        int cells = 0;
+        for (int row = 0; row < geometry.getRowCount(); row++) {
+            for (int column = 0; column < COLUMNS; column++) {
+                int index = geometry.getIndex(row, column);
+                float x = PADDING_LEFT + column * cell + MARGIN + SWATCH_LENGTH / 2f;
+                float y = PADDING_TOP + row * cell + MARGIN + SWATCH_LENGTH / 2f;
+                assertEquals(index, geometry.getIndexAt(x, y));
+                if (index >= 0) {
+                    assertEquals(column, geometry.getColumn(index));
+                    cells++;
+                }
+            }
+        }
+        assertEquals(colorCount, cells);
+    }
+}
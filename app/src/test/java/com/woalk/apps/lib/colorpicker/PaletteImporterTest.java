@@ -0,0 +1,317 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.woalk.apps.lib.colorpicker;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Imports GIMP, Adobe Swatch Exchange and CSS palettes with {@link PaletteImporter}, including
+ * malformed entries which are reported and skipped.
+ */
+public class PaletteImporterTest {
+
+    private static final int ASE_GROUP_START = 0xc001;
+    private static final int ASE_GROUP_END = 0xc002;
+
+    @Test
+    public void importsGimpPalette() throws IOException {
+        RecordingListener listener = importGimp(
+                "GIMP Palette\r\n"
+                + "Name: Test\r\n"
+                + "Columns: 4\r\n"
+                + "# A comment\r\n"
+                + "\r\n"
+                + "255   0   0\tRed\r\n"
+                + "  0 128 255  Sky  blue  \r\n"
+                + "  7   8   9\r\n");
+
+        assertArrayEquals(new int[] {0xffff0000, 0xff0080ff, 0xff070809}, listener.getColors());
+        assertEquals(Arrays.asList("Red", "Sky  blue", null), listener.names);
+        assertEquals(0, listener.errorPositions.size());
+    }
+
+    @Test
+    public void skipsMalformedGimpLines() throws IOException {
+        StringBuilder longLine = new StringBuilder("1 2 3 ");
+        for (int i = 0; i < 2000; i++) {
+            longLine.append('x');
+        }
+        RecordingListener listener = importGimp(
+                "GIMP Palette\n"
+                + "1000 0 0\n"
+                + "10 20 30 Before\n"
+                + "0 0 0255\n"
+                + "256 0 0\n"
+                + "0 300 0\n"
+                + longLine + "\n"
+                + "12 34\n"
+                + "1 2 3Name\n"
+                + "-1 2 3\n"
+                + "0 0 255 Blue");
+
+        // The last line has no line break.
+        assertArrayEquals(new int[] {0xff0a141e, 0xff0000ff}, listener.getColors());
+        assertEquals(Arrays.asList("Before", "Blue"), listener.names);
+        assertEquals(Arrays.asList(2, 4, 5, 6, 7, 8, 9, 10), listener.errorPositions);
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsFileWithoutGimpHeader() throws IOException {
+        importGimp("255 0 0 Red\n");
+    }
+
+    @Test
+    public void importsAdobeSwatchExchangeColorModels() throws IOException {
+        AseWriter ase = new AseWriter();
+        ase.writeBlock(ASE_GROUP_START, groupStart("Group"));
+        ase.writeBlock(1, colorEntry("Orange", "RGB ", 1f, 0.5f, 0f));
+        ase.writeBlock(1, colorEntry("Red", "CMYK", 0f, 1f, 1f, 0f));
+        ase.writeBlock(1, colorEntry(null, "CMYK", 0f, 0f, 0f, 0.5f));
+        ase.writeBlock(1, colorEntry("White", "LAB ", 1f, 0f, 0f));
+        ase.writeBlock(1, colorEntry("Black", "LAB ", 0f, 0f, 0f));
+        ase.writeBlock(1, colorEntry("Gray", "Gray", 0.25f));
+        ase.writeBlock(1, colorEntry("Clamped", "RGB ", 2f, -1f, 0f));
+        ase.writeBlock(ASE_GROUP_END, new byte[0]);
+        RecordingListener listener = ase.importBlocks();
+
+        assertArrayEquals(new int[] {0xffff8000, 0xffff0000, 0xff808080, 0xffffffff, 0xff000000,
+                0xff404040, 0xffff0000}, listener.getColors());
+        assertEquals(Arrays.asList("Orange", "Red", null, "White", "Black", "Gray", "Clamped"),
+                listener.names);
+        assertEquals(0, listener.errorPositions.size());
+    }
+
+    @Test
+    public void skipsMalformedAdobeSwatchExchangeBlocks() throws IOException {
+        AseWriter ase = new AseWriter();
+        ase.writeBlock(1, colorEntry("Unknown", "XYZ ", 0f, 0f, 0f));
+        // Without the blue value.
+        ase.writeBlock(1, Arrays.copyOf(colorEntry("Short", "RGB ", 1f, 1f, 1f), 2 + 12 + 4 + 8));
+        ase.writeBlock(1, new byte[1]);
+        // Too long to import, skipped as a whole.
+        ase.writeBlock(1, new byte[5000]);
+        ase.writeBlock(1, colorEntry("Green", "RGB ", 0f, 1f, 0f));
+        RecordingListener listener = ase.importBlocks();
+
+        assertArrayEquals(new int[] {0xff00ff00}, listener.getColors());
+        assertEquals(Arrays.asList("Green"), listener.names);
+        assertEquals(Arrays.asList(1, 2, 3, 4), listener.errorPositions);
+    }
+
+    @Test
+    public void stopsAtNegativeBlockLength() throws IOException {
+        AseWriter ase = new AseWriter();
+        ase.writeBlock(1, colorEntry("Blue", "RGB ", 0f, 0f, 1f));
+        ase.mBlocks.writeShort(1);
+        ase.mBlocks.writeInt(-1);
+        ase.mBlockCount++;
+        ase.writeBlock(1, colorEntry("Lost", "RGB ", 0f, 0f, 0f));
+        RecordingListener listener = ase.importBlocks();
+
+        // Everything after the invalid length is skipped, so the file ends too early.
+        assertArrayEquals(new int[] {0xff0000ff}, listener.getColors());
+        assertEquals(Arrays.asList(2, 3), listener.errorPositions);
+    }
+
+    @Test
+    public void reportsTruncatedAdobeSwatchExchangeFile() throws IOException {
+        AseWriter ase = new AseWriter();
+        ase.writeBlock(1, colorEntry("Blue", "RGB ", 0f, 0f, 1f));
+        ase.writeBlock(1, colorEntry("Cut", "RGB ", 1f, 1f, 1f));
+        byte[] bytes = ase.toByteArray();
+        // Claims a third block, and the second one ends early.
+        bytes[11] = 3;
+        RecordingListener listener = new RecordingListener();
+        PaletteImporter.importAdobeSwatchExchange(
+                new ByteArrayInputStream(Arrays.copyOf(bytes, bytes.length - 5)), listener);
+
+        assertArrayEquals(new int[] {0xff0000ff}, listener.getColors());
+        assertEquals(Arrays.asList(2), listener.errorPositions);
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsFileWithoutAdobeSwatchExchangeSignature() throws IOException {
+        byte[] bytes = new AseWriter().toByteArray();
+        bytes[0] = 'X';
+        PaletteImporter.importAdobeSwatchExchange(new ByteArrayInputStream(bytes),
+                new RecordingListener());
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsTruncatedAdobeSwatchExchangeHeader() throws IOException {
+        byte[] bytes = new AseWriter().toByteArray();
+        PaletteImporter.importAdobeSwatchExchange(
+                new ByteArrayInputStream(Arrays.copyOf(bytes, 10)), new RecordingListener());
+    }
+
+    @Test
+    public void importsCssProperties() throws IOException {
+        RecordingListener listener = importCss(
+                "/* Colors; --commented: #000000; */\n"
+                + ":root {\n"
+                + "  --brand-red: #e53935;\n"
+                + "  --accent: #0f08 !important;\n"
+                + "  --overlay /* with alpha */: #11223344;\n"
+                + "  --named: rebeccapurple !IMPORTANT;\n"
+                + "  color: #123456;\n"
+                + "  --spacing: 4px;\n"
+                + "  --broken;\n"
+                + "}\n"
+                + ".a{--last:#abc}");
+
+        assertArrayEquals(new int[] {0xffe53935, 0x8800ff00, 0x44112233, 0xff663399,
+                0xffaabbcc}, listener.getColors());
+        assertEquals(Arrays.asList("brand-red", "accent", "overlay", "named", "last"),
+                listener.names);
+        assertEquals(Arrays.asList(8, 9), listener.errorPositions);
+    }
+
+    @Test
+    public void skipsTooLongCssDeclaration() throws IOException {
+        StringBuilder css = new StringBuilder("--long: #");
+        for (int i = 0; i < 2000; i++) {
+            css.append('f');
+        }
+        css.append(";\n--short: #fff;");
+        RecordingListener listener = importCss(css.toString());
+
+        assertArrayEquals(new int[] {0xffffffff}, listener.getColors());
+        assertEquals(Arrays.asList(1), listener.errorPositions);
+    }
+
+    private static RecordingListener importGimp(String gpl) throws IOException {
+        RecordingListener listener = new RecordingListener();
+        PaletteImporter.importGimpPalette(toStream(gpl), listener);
+        return listener;
+    }
+
+    private static RecordingListener importCss(String css) throws IOException {
+        RecordingListener listener = new RecordingListener();
+        PaletteImporter.importCssProperties(toStream(css), listener);
+        return listener;
+    }
+
+    private static InputStream toStream(String s) {
+        return new ByteArrayInputStream(s.getBytes(Charset.forName("UTF-8")));
+    }
+
+    private static byte[] groupStart(String name) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        writeName(out, name);
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Returns a color entry block with the values of the model, followed by the color type.
+     */
+    private static byte[] colorEntry(String name, String model, float... values)
+            throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        writeName(out, name);
+        out.writeBytes(model);
+        for (float value : values) {
+            out.writeFloat(value);
+        }
+        out.writeShort(2); // Normal
+        return bytes.toByteArray();
+    }
+
+    private static void writeName(DataOutputStream out, String name) throws IOException {
+        if (name == null) {
+            out.writeShort(0);
+            return;
+        }
+        out.writeShort(name.length() + 1);
+        out.writeChars(name);
+        out.writeShort(0);
+    }
+
+    /**
+     * Writes the blocks of an Adobe Swatch Exchange file and the header which counts them.
+     */
+    private static class AseWriter {
+
+        final ByteArrayOutputStream mBlockBytes = new ByteArrayOutputStream();
+        final DataOutputStream mBlocks = new DataOutputStream(mBlockBytes);
+        int mBlockCount;
+
+        void writeBlock(int type, byte[] block) throws IOException {
+            mBlocks.writeShort(type);
+            mBlocks.writeInt(block.length);
+            mBlocks.write(block);
+            mBlockCount++;
+        }
+
+        byte[] toByteArray() throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeBytes("ASEF");
+            out.writeInt(0x00010000);
+            out.writeInt(mBlockCount);
+            mBlockBytes.writeTo(out);
+            return bytes.toByteArray();
+        }
+
+        RecordingListener importBlocks() throws IOException {
+            RecordingListener listener = new RecordingListener();
+            PaletteImporter.importAdobeSwatchExchange(new ByteArrayInputStream(toByteArray()),
+                    listener);
+            return listener;
+        }
+    }
+
+    private static class RecordingListener implements PaletteImporter.OnColorImportedListener {
+
+        final List<Integer> colors = new ArrayList<Integer>();
+        final List<String> names = new ArrayList<String>();
+        final List<Integer> errorPositions = new ArrayList<Integer>();
+
+        @Override
+        public void onColorImported(int color, String name) {
+            colors.add(color);
+            names.add(name);
+        }
+
+        @Override
+        public void onImportError(int position, String message) {
+            errorPositions.add(position);
+        }
+
+        int[] getColors() {
+            int[] result = new int[colors.size()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = colors.get(i);
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.woalk.apps.lib.colorpicker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sorts random palettes with {@link HsvColorComparator}, as a {@code Comparator} of boxed colors
+ * and with the primitive {@link HsvColorComparator#sort(int[])}.  Both include copying the
+ * unsorted palette.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HsvSortBenchmark {
+
+    @Param({"16", "256", "4096"})
+    public int size;
+
+    private final HsvColorComparator mComparator = new HsvColorComparator();
+    private int[] mColors;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        mColors = new int[size];
+        for (int i = 0; i < size; i++) {
+            mColors[i] = random.nextInt() | 0xff000000;
+        }
+    }
+
+    @Benchmark
+    public Integer[] comparatorSort() {
+        Integer[] colors = new Integer[mColors.length];
+        for (int i = 0; i < colors.length; i++) {
+            colors[i] = mColors[i];
+        }
+        Arrays.sort(colors, mComparator);
+        return colors;
+    }
+
+    @Benchmark
+    public int[] primitiveSort() {
+        int[] colors = mColors.clone();
+        HsvColorComparator.sort(colors);
+        return colors;
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.woalk.apps.lib.colorpicker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses every color string format {@link ColorPickerDialog#parseColor(String)} supports, and
+ * invalid strings.  {@code ColorPickerDialog.parseColor} is a plain delegate to
+ * {@link ColorParser#parseColor}, which is measured here without the Android dependencies of the
+ * dialog.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ParseColorBenchmark {
+
+    @Param({"#f80", "#8f80", "#ff8800", "#80ff8800", "red", "LightGoldenrodYellow",
+            "#ff880", "#gg8800", "notacolor"})
+    public String colorString;
+
+    @Benchmark
+    public int parseColor() {
+        try {
+            return ColorParser.parseColor(colorString);
+        } catch (IllegalArgumentException e) {
+            return 0;
+        }
+    }
+
+    @Benchmark
+    public long tryParseColor() {
+        return ColorParser.tryParseColor(colorString);
+    }
+}
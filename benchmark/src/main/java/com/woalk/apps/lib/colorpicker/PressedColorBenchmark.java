@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.woalk.apps.lib.colorpicker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Computes the pressed color of swatches.  {@code ColorStateDrawable.getPressedColor} is
+ * {@link ColorMath#scaleValue} with a factor of {@code 7 / 10}; the HSV round trip it replaced is
+ * measured for comparison.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PressedColorBenchmark {
+
+    private static final int COLOR_COUNT = 1024;
+
+    private int[] mColors;
+    private final float[] mHsv = new float[3];
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        mColors = new int[COLOR_COUNT];
+        for (int i = 0; i < COLOR_COUNT; i++) {
+            mColors[i] = random.nextInt();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COLOR_COUNT)
+    public int getPressedColor() {
+        int result = 0;
+        for (int color : mColors) {
+            result ^= ColorMath.scaleValue(color, 7, 10);
+        }
+        return result;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COLOR_COUNT)
+    public int hsvRoundTrip() {
+        int result = 0;
+        for (int color : mColors) {
+            ColorMath.colorToHsv(color, mHsv);
+            mHsv[2] = mHsv[2] * 0.7f;
+            result ^= ColorMath.hsvToColor(mHsv);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.woalk.apps.lib.colorpicker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The serpentine geometry of the palette views in {@link PaletteGeometry}, for every swatch of a
+ * palette.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SerpentineBenchmark {
+
+    private static final int COLOR_COUNT = 4096;
+
+    @Param({"4", "5", "12"})
+    public int columns;
+
+    @Param({"false", "true"})
+    public boolean rtl;
+
+    private PaletteGeometry geometry;
+
+    @Setup
+    public void setUp() {
+        geometry = new PaletteGeometry(columns, 48, 4);
+        geometry.setColorCount(COLOR_COUNT);
+        geometry.setRtl(rtl);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COLOR_COUNT)
+    public int swatchIndex() {
+        int result = 0;
+        for (int position = 0; position < COLOR_COUNT; position++) {
+            result += geometry.getIndex(position / columns, position % columns);
+        }
+        return result;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COLOR_COUNT)
+    public int accessibilityIndex() {
+        int result = 0;
+        for (int index = 0; index < COLOR_COUNT; index++) {
+            result += geometry.getAccessibilityIndex(index);
+        }
+        return result;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COLOR_COUNT)
+    public int swatchBounds() {
+        int result = 0;
+        for (int index = 0; index < COLOR_COUNT; index++) {
+            result += geometry.getSwatchLeft(index) + geometry.getSwatchTop(index);
+        }
+        return result;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COLOR_COUNT)
+    public int hitTest() {
+        int result = 0;
+        int cell = geometry.getCellLength();
+        for (int position = 0; position < COLOR_COUNT; position++) {
+            float x = (position % columns) * cell + cell / 2f;
+            float y = (position / columns) * cell + cell / 2f;
+            result += geometry.getIndexAt(x, y);
+        }
+        return result;
+    }
+}